@@ -1,18 +1,29 @@
 package it.polimi.gpplib;
 
 import it.polimi.gpplib.model.Notice;
+import it.polimi.gpplib.model.NoticeFacts;
 import it.polimi.gpplib.model.SuggestedGppCriterion;
 import it.polimi.gpplib.model.Constants;
 import it.polimi.gpplib.model.GppAnalysisResult;
 import it.polimi.gpplib.model.GppCriterion;
 import it.polimi.gpplib.model.GppDocument;
 import it.polimi.gpplib.model.SuggestedGppPatch;
+import it.polimi.gpplib.utils.AwardWeightSnapshot;
+import it.polimi.gpplib.utils.DomainKnowledgeSnapshot;
 import it.polimi.gpplib.utils.GppDomainKnowledgeService;
 import it.polimi.gpplib.utils.GppPatchApplier;
+import it.polimi.gpplib.utils.GppResourceRegistry;
+import it.polimi.gpplib.utils.NoticeFactsExtractor;
+import it.polimi.gpplib.utils.XmlUtils;
 import it.polimi.gpplib.utils.XmlUtils.XmlUtilsException;
 import it.polimi.gpplib.utils.EFormsSdkWrapper;
 
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,10 +63,19 @@ import org.slf4j.LoggerFactory;
  * @version 1.0
  * @since 1.0
  */
-public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
+public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer, AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultGppNoticeAnalyzer.class);
 
+    private static final Cleaner cleaner = Cleaner.create();
+
+    // shared with the other analyzers using the same paths and SDK version
+    private final GppResourceRegistry.Lease<GppDomainKnowledgeService> domainKnowledgeLease;
+    private final GppResourceRegistry.Lease<EFormsSdkWrapper> eFormsSdkLease;
+    // releases the leases on close, or once the analyzer is garbage collected if
+    // it is never closed
+    private final Cleaner.Cleanable leaseReleaser;
+
     private final GppDomainKnowledgeService domainKnowledge;
 
     private final GppPatchApplier patchApplier;
@@ -72,15 +92,19 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
      * Creates a new DefaultGppNoticeAnalyzer with default domain knowledge paths.
      * Uses the default paths defined in {@link Constants} for loading GPP
      * documents,
-     * criteria, and patches.
+     * criteria, and patches, preferring the precompiled binary snapshot when it
+     * is present.
      * 
      * @throws GppInternalErrorException if the domain knowledge cannot be loaded
      */
     public DefaultGppNoticeAnalyzer() {
         logger.info("Initializing DefaultGppNoticeAnalyzer with default values");
         try {
-            domainKnowledge = new GppDomainKnowledgeService(Constants.DOMAIN_KNOWLEDGE_GPP_DOCS_PATH,
-                    Constants.DOMAIN_KNOWLEDGE_GPP_CRITERIA_PATH, Constants.DOMAIN_KNOWLEDGE_GPP_PATCHES_PATH);
+            domainKnowledgeLease = GppResourceRegistry.getDefault().acquireDomainKnowledge(
+                    Constants.DOMAIN_KNOWLEDGE_SNAPSHOT_PATH, Constants.DOMAIN_KNOWLEDGE_GPP_DOCS_PATH,
+                    Constants.DOMAIN_KNOWLEDGE_GPP_CRITERIA_PATH, Constants.DOMAIN_KNOWLEDGE_GPP_PATCHES_PATH,
+                    GppDomainKnowledgeService.DEFAULT_RELEVANCE_CACHE_SIZE);
+            domainKnowledge = domainKnowledgeLease.get();
             logger.info("Successfully loaded domain knowledge from default paths");
         } catch (Exception e) {
             logger.error("Failed to load domain knowledge from default paths", e);
@@ -88,14 +112,17 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
         }
 
         try {
-            eFormsSdkWrapper = new EFormsSdkWrapper(Constants.EFORMS_SDK_DEFAULT_VERSION);
+            eFormsSdkLease = GppResourceRegistry.getDefault().acquireEFormsSdk(Constants.EFORMS_SDK_DEFAULT_VERSION);
+            eFormsSdkWrapper = eFormsSdkLease.get();
             logger.info("Successfully loaded the default version of the eForms SDK");
         } catch (Exception e) {
             logger.error("Failed to load the eForms SDK", e);
+            domainKnowledgeLease.close();
             throw new GppInternalErrorException("Unexpected error loading eForms SDK", e);
         }
 
         patchApplier = new GppPatchApplier(eFormsSdkWrapper);
+        leaseReleaser = cleaner.register(this, new LeaseReleaser(domainKnowledgeLease, eFormsSdkLease));
         logger.debug("DefaultGppNoticeAnalyzer initialization completed");
     }
 
@@ -115,7 +142,9 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
         logger.info("Initializing DefaultGppNoticeAnalyzer with custom paths: docs={}, criteria={}, patches={}",
                 gppDocsPath, gppCriteriaPath, gppPatchesPath);
         try {
-            domainKnowledge = new GppDomainKnowledgeService(gppDocsPath, gppCriteriaPath, gppPatchesPath);
+            domainKnowledgeLease = GppResourceRegistry.getDefault().acquireDomainKnowledge(null, gppDocsPath,
+                    gppCriteriaPath, gppPatchesPath, GppDomainKnowledgeService.DEFAULT_RELEVANCE_CACHE_SIZE);
+            domainKnowledge = domainKnowledgeLease.get();
             logger.info("Successfully loaded domain knowledge from custom paths");
         } catch (IllegalArgumentException e) {
             logger.error("Invalid path provided for domain knowledge loading", e);
@@ -124,8 +153,15 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
             logger.error("Unexpected error loading domain knowledge from custom paths", e);
             throw new GppInternalErrorException("Unexpected error loading domain knowledge", e);
         }
-        eFormsSdkWrapper = new EFormsSdkWrapper();
+        try {
+            eFormsSdkLease = GppResourceRegistry.getDefault().acquireEFormsSdk(Constants.EFORMS_SDK_DEFAULT_VERSION);
+        } catch (RuntimeException e) {
+            domainKnowledgeLease.close();
+            throw e;
+        }
+        eFormsSdkWrapper = eFormsSdkLease.get();
         patchApplier = new GppPatchApplier(eFormsSdkWrapper);
+        leaseReleaser = cleaner.register(this, new LeaseReleaser(domainKnowledgeLease, eFormsSdkLease));
         logger.debug("DefaultGppNoticeAnalyzer initialization completed with custom paths");
     }
 
@@ -146,13 +182,71 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
     public Notice loadNotice(String xmlString) {
         logger.debug("Loading notice from XML string (length: {} characters)",
                 xmlString != null ? xmlString.length() : 0);
+        return loadNotice(() -> new Notice(xmlString), "Invalid notice xml string: ");
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @param xmlStream {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws GppBadRequestException if the XML is malformed or invalid
+     */
+    @Override
+    public Notice loadNotice(InputStream xmlStream) {
+        logger.debug("Loading notice from XML stream");
+        return loadNotice(() -> new Notice(XmlUtils.loadDocument(xmlStream)), "Invalid notice xml: ");
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @param xmlBytes {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws GppBadRequestException if the XML is malformed or invalid
+     */
+    @Override
+    public Notice loadNotice(byte[] xmlBytes) {
+        logger.debug("Loading notice from XML bytes (length: {} bytes)", xmlBytes != null ? xmlBytes.length : 0);
+        return loadNotice(() -> new Notice(XmlUtils.loadDocument(xmlBytes)), "Invalid notice xml: ");
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @param xmlBuffer {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws GppBadRequestException if the XML is malformed or invalid
+     */
+    @Override
+    public Notice loadNotice(ByteBuffer xmlBuffer) {
+        logger.debug("Loading notice from XML buffer (remaining: {} bytes)",
+                xmlBuffer != null ? xmlBuffer.remaining() : 0);
+        return loadNotice(() -> new Notice(XmlUtils.loadDocument(xmlBuffer)), "Invalid notice xml: ");
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @param xmlFile {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws GppBadRequestException if the file cannot be read, or the XML is
+     *                                malformed or invalid
+     */
+    @Override
+    public Notice loadNotice(Path xmlFile) {
+        logger.debug("Loading notice from XML file: {}", xmlFile);
+        return loadNotice(() -> new Notice(XmlUtils.loadDocument(xmlFile)), "Invalid notice xml: ");
+    }
+
+    private Notice loadNotice(Supplier<Notice> parser, String invalidXmlMessage) {
         Notice notice;
         try {
-            notice = new Notice(xmlString);
+            notice = parser.get();
             logger.info("Successfully loaded notice with {} lots", notice.getLotIds().size());
         } catch (XmlUtilsException e) {
-            logger.error("Failed to parse XML string: {}", e.getMessage());
-            throw new GppBadRequestException("Invalid notice xml string: " + e.getMessage(), e);
+            logger.error("Failed to parse XML: {}", e.getMessage());
+            throw new GppBadRequestException(invalidXmlMessage + e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Unexpected error loading notice: {}", e.getMessage(), e);
             throw new GppBadRequestException("Unexpected error loading notice: " + e.getMessage(), e);
@@ -191,6 +285,65 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
             throw new GppBadRequestException("Notice must not be null");
         }
 
+        NoticeFacts noticeFacts;
+        try {
+            noticeFacts = NoticeFacts.fromNotice(notice);
+        } catch (Exception e) {
+            logger.error("Unexpected error during notice analysis", e);
+            throw new GppInternalErrorException("Unexpected error during notice analysis: " + e.getMessage(), e);
+        }
+        return analyze(noticeFacts);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This implementation scans the XML once with StAX (see
+     * {@link NoticeFactsExtractor}) and never builds a DOM.
+     * 
+     * @param xmlStream {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws GppBadRequestException if the XML is malformed or invalid
+     */
+    @Override
+    public NoticeFacts loadNoticeFacts(InputStream xmlStream) {
+        logger.debug("Loading notice facts from XML stream");
+        try {
+            NoticeFacts noticeFacts = NoticeFactsExtractor.extract(xmlStream);
+            logger.info("Successfully loaded notice facts with {} lots", noticeFacts.getLotIds().size());
+            return noticeFacts;
+        } catch (XmlUtilsException e) {
+            logger.error("Failed to parse XML: {}", e.getMessage());
+            throw new GppBadRequestException("Invalid notice xml: " + e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Unexpected error loading notice facts: {}", e.getMessage(), e);
+            throw new GppBadRequestException("Unexpected error loading notice: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This implementation performs the same analysis as
+     * {@link #analyzeNotice(Notice)}.
+     * 
+     * @param noticeFacts {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws GppBadRequestException    if the notice facts are null
+     * @throws GppInternalErrorException if an unexpected error occurs during
+     *                                   analysis
+     */
+    @Override
+    public GppAnalysisResult analyzeNoticeFacts(NoticeFacts noticeFacts) {
+        if (noticeFacts == null) {
+            throw new GppBadRequestException("Notice facts must not be null");
+        }
+        return analyze(noticeFacts);
+    }
+
+    private GppAnalysisResult analyze(NoticeFacts notice) {
         logger.info("Starting analysis of notice with {} lots", notice.getLotIds().size());
         try {
             // TODO: verify that the documents can't be duplicated
@@ -203,6 +356,9 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
             List<String> lotIds = notice.getLotIds();
             logger.debug("Processing {} lots for analysis", lotIds.size());
 
+            // the same knowledge for all lots, even if it is reloaded meanwhile
+            DomainKnowledgeSnapshot knowledge = domainKnowledge.getSnapshot();
+
             for (String lotId : lotIds) {
                 logger.debug("Analyzing lot: {}", lotId);
                 List<String> lotCpvs = notice.getAllLotCpvs(lotId);
@@ -213,9 +369,9 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
                     logger.debug("Lot {} has {} specific CPV codes: {}", lotId, lotCpvs.size(), lotCpvs);
                 }
 
-                List<GppDocument> relevantDocuments = domainKnowledge.getRelevantGppDocuments(lotCpvs);
-                List<GppCriterion> relevantCriteria = domainKnowledge.getRelevantGppCriteria(lotCpvs, ambitionLevel);
-                List<SuggestedGppCriterion> suggestedCriteria = domainKnowledge
+                List<GppDocument> relevantDocuments = knowledge.getRelevantGppDocuments(lotCpvs);
+                List<GppCriterion> relevantCriteria = knowledge.getRelevantGppCriteria(lotCpvs, ambitionLevel);
+                List<SuggestedGppCriterion> suggestedCriteria = knowledge
                         .convertToSuggestedGppCriteria(relevantCriteria, lotId, lotCpvs);
 
                 logger.debug("Found {} relevant documents and {} relevant criteria for lot {}",
@@ -285,23 +441,21 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
     public Notice applyPatches(Notice notice, List<SuggestedGppPatch> patches) {
         logger.info("Applying {} patches to notice", patches.size());
         try {
-            // Store the original notice before applying patches for weight calculation
-            Notice originalNotice = new Notice(notice.toXmlString());
+            // Store the original award criteria weights before applying patches for
+            // weight calculation
+            AwardWeightSnapshot originalWeights = AwardWeightSnapshot.capture(notice);
 
             int appliedPatches = 0;
             for (SuggestedGppPatch patch : patches) {
-                if (patch == null) {
-                    logger.debug("Skipping null patch");
-                    continue;
+                if (patch != null) {
+                    appliedPatches++;
                 }
-                logger.debug("Applying patch: {} for lot {}", patch.getName(), patch.getLotId());
-                notice = patchApplier.applyPatch(notice, patch);
-                appliedPatches++;
             }
+            notice = patchApplier.applyPatches(notice, patches);
             logger.info("Successfully applied {} out of {} patches", appliedPatches, patches.size());
 
             // Update award criteria weights after all patches have been applied
-            patchApplier.updateAwardCriteriaWeights(notice, originalNotice);
+            patchApplier.updateAwardCriteriaWeights(notice, originalWeights);
 
             return notice;
         } catch (IllegalArgumentException e) {
@@ -312,4 +466,41 @@ public class DefaultGppNoticeAnalyzer implements GppNoticeAnalyzer {
             throw new GppInternalErrorException("Unexpected error applying patches: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Releases this analyzer's reference to the shared domain knowledge and
+     * eForms SDK. They are unloaded once no analyzer uses them anymore. The
+     * analyzer must not be used after it is closed.
+     *
+     * <p>
+     * An analyzer that is never closed releases its reference when it is garbage
+     * collected, which may be much later: closing it frees the resources as soon
+     * as possible.
+     */
+    @Override
+    public void close() {
+        logger.debug("Closing DefaultGppNoticeAnalyzer");
+        leaseReleaser.clean();
+    }
+
+    /**
+     * Closes the leases of an analyzer. It must not reference the analyzer, or
+     * the analyzer would never become unreachable.
+     */
+    private static final class LeaseReleaser implements Runnable {
+        private final GppResourceRegistry.Lease<GppDomainKnowledgeService> domainKnowledgeLease;
+        private final GppResourceRegistry.Lease<EFormsSdkWrapper> eFormsSdkLease;
+
+        private LeaseReleaser(GppResourceRegistry.Lease<GppDomainKnowledgeService> domainKnowledgeLease,
+                GppResourceRegistry.Lease<EFormsSdkWrapper> eFormsSdkLease) {
+            this.domainKnowledgeLease = domainKnowledgeLease;
+            this.eFormsSdkLease = eFormsSdkLease;
+        }
+
+        @Override
+        public void run() {
+            eFormsSdkLease.close();
+            domainKnowledgeLease.close();
+        }
+    }
+}
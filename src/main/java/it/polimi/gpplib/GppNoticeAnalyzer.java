@@ -1,9 +1,13 @@
 package it.polimi.gpplib;
 
 import it.polimi.gpplib.model.Notice;
+import it.polimi.gpplib.model.NoticeFacts;
 import it.polimi.gpplib.model.SuggestedGppCriterion;
 import it.polimi.gpplib.model.GppAnalysisResult;
 import it.polimi.gpplib.model.SuggestedGppPatch;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -40,6 +44,48 @@ public interface GppNoticeAnalyzer {
      */
     Notice loadNotice(String xmlString);
 
+    /**
+     * Loads a procurement notice from an XML byte stream. The encoding is taken
+     * from the XML declaration. The stream is not closed.
+     * 
+     * @param xmlStream the encoded XML of the procurement notice
+     * @return a {@link Notice} object representing the parsed procurement notice
+     * @throws GppException if the XML cannot be parsed or is invalid
+     */
+    Notice loadNotice(InputStream xmlStream);
+
+    /**
+     * Loads a procurement notice from its encoded XML bytes. The encoding is taken
+     * from the XML declaration.
+     * 
+     * @param xmlBytes the encoded XML of the procurement notice
+     * @return a {@link Notice} object representing the parsed procurement notice
+     * @throws GppException if the XML cannot be parsed or is invalid
+     */
+    Notice loadNotice(byte[] xmlBytes);
+
+    /**
+     * Loads a procurement notice from the remaining bytes of a buffer (heap,
+     * direct or memory-mapped) without copying them. The encoding is taken from
+     * the XML declaration.
+     * 
+     * @param xmlBuffer the encoded XML of the procurement notice
+     * @return a {@link Notice} object representing the parsed procurement notice
+     * @throws GppException if the XML cannot be parsed or is invalid
+     */
+    Notice loadNotice(ByteBuffer xmlBuffer);
+
+    /**
+     * Loads a procurement notice from an XML file, which is memory-mapped rather
+     * than read into memory. The encoding is taken from the XML declaration.
+     * 
+     * @param xmlFile the path of the procurement notice file
+     * @return a {@link Notice} object representing the parsed procurement notice
+     * @throws GppException if the file cannot be read, or the XML cannot be parsed
+     *                      or is invalid
+     */
+    Notice loadNotice(Path xmlFile);
+
     /**
      * Analyzes a procurement notice to identify existing GPP criteria and suggest
      * improvements.
@@ -51,6 +97,28 @@ public interface GppNoticeAnalyzer {
      */
     GppAnalysisResult analyzeNotice(Notice notice);
 
+    /**
+     * Extracts the facts needed for the analysis (language, SDK version, lots and
+     * CPV codes) from an XML byte stream, without building the whole document in
+     * memory. The stream is not closed.
+     * 
+     * @param xmlStream the encoded XML of the procurement notice
+     * @return the {@link NoticeFacts} of the procurement notice
+     * @throws GppException if the XML cannot be parsed or is invalid
+     */
+    NoticeFacts loadNoticeFacts(InputStream xmlStream);
+
+    /**
+     * Analyzes the facts of a procurement notice, same as
+     * {@link #analyzeNotice(Notice)} but without the need for a loaded notice.
+     * 
+     * @param noticeFacts the facts of the procurement notice to analyze
+     * @return a {@link GppAnalysisResult} containing the analysis results and
+     *         suggested criteria
+     * @throws GppException if the analysis fails
+     */
+    GppAnalysisResult analyzeNoticeFacts(NoticeFacts noticeFacts);
+
     /**
      * Suggests specific patches to improve the GPP compliance of a procurement
      * notice.
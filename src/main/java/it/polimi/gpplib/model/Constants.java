@@ -8,6 +8,8 @@ public final class Constants {
     public static final String DOMAIN_KNOWLEDGE_GPP_CRITERIA_PATH = "domain_knowledge/gpp_criteria.json";
     public static final String DOMAIN_KNOWLEDGE_GPP_DOCS_PATH = "domain_knowledge/gpp_criteria_docs.json";
     public static final String DOMAIN_KNOWLEDGE_GPP_PATCHES_PATH = "domain_knowledge/gpp_patches_data.json";
+    // precompiled from the JSON files above at build time
+    public static final String DOMAIN_KNOWLEDGE_SNAPSHOT_PATH = "domain_knowledge/gpp_knowledge.bin";
 
     // eForms SDK paths
     public static final String EFORMS_SDK_UBL_COMMON_AGGREGATE_COMPONENTS_XSD_PATH_TEMPLATE = "eForms-SDK/v{version}/schemas/common/UBL-CommonAggregateComponents-2.3.xsd";
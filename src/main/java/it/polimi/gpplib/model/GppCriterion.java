@@ -1,5 +1,6 @@
 package it.polimi.gpplib.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import it.polimi.gpplib.utils.Utils;
@@ -23,6 +24,8 @@ public class GppCriterion {
     private String id;
     private String name;
     private List<String> relevantCpvCodes;
+    // relevantCpvCodes without trailing zeros, computed once
+    private List<String> relevantCpvPrefixes;
     private String environmentalImpactType;
     private String description;
     private String selectionCriterionType;
@@ -118,6 +121,22 @@ public class GppCriterion {
 
     public void setRelevantCpvCodes(List<String> relevantCpvCodes) {
         this.relevantCpvCodes = relevantCpvCodes;
+        this.relevantCpvPrefixes = null;
+    }
+
+    /**
+     * Returns the relevant CPV codes without their trailing zeros, in the same
+     * order. They are computed once and reset by
+     * {@link #setRelevantCpvCodes(List)}.
+     */
+    @JsonIgnore
+    public List<String> getRelevantCpvPrefixes() {
+        List<String> prefixes = relevantCpvPrefixes;
+        if (prefixes == null) {
+            prefixes = Utils.cpvPrefixes(relevantCpvCodes);
+            relevantCpvPrefixes = prefixes;
+        }
+        return prefixes;
     }
 
     public String getEnvironmentalImpactType() {
@@ -146,11 +165,17 @@ public class GppCriterion {
 
     public boolean isApplicable(List<String> cpvCodes, String ambitionLevel) {
         // Check CPV match
-        boolean cpvMatch = Utils.hasMatchingCpvs(cpvCodes, relevantCpvCodes);
-        // Check ambition level match (case-insensitive, allow "both")
-        boolean ambitionMatch = this.ambitionLevel.toLowerCase().equals("both")
+        boolean cpvMatch = Utils.hasMatchingCpvs(cpvCodes, relevantCpvCodes, getRelevantCpvPrefixes());
+        return cpvMatch && matchesAmbitionLevel(ambitionLevel);
+    }
+
+    /**
+     * Returns true if the criterion applies to the given ambition level
+     * (case-insensitive, "both" applies to every level).
+     */
+    public boolean matchesAmbitionLevel(String ambitionLevel) {
+        return this.ambitionLevel.toLowerCase().equals("both")
                 || this.ambitionLevel.toLowerCase().equals(ambitionLevel);
-        return cpvMatch && ambitionMatch;
     }
 
     @Override
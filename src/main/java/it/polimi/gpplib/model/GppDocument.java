@@ -1,5 +1,6 @@
 package it.polimi.gpplib.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import it.polimi.gpplib.utils.Utils;
@@ -17,6 +18,8 @@ public class GppDocument {
     private String documentReference;
     private LocalDateTime publicationDate; // Jackson can parse "YYYY-MM-DDTHH:mm:ss" into this
     private List<String> relevantCpvCodes;
+    // relevantCpvCodes without trailing zeros, computed once
+    private List<String> relevantCpvPrefixes;
     private String summary;
 
     // --- Constructors ---
@@ -73,6 +76,22 @@ public class GppDocument {
 
     public void setRelevantCpvCodes(List<String> relevantCpvCodes) {
         this.relevantCpvCodes = relevantCpvCodes;
+        this.relevantCpvPrefixes = null;
+    }
+
+    /**
+     * Returns the relevant CPV codes without their trailing zeros, in the same
+     * order. They are computed once and reset by
+     * {@link #setRelevantCpvCodes(List)}.
+     */
+    @JsonIgnore
+    public List<String> getRelevantCpvPrefixes() {
+        List<String> prefixes = relevantCpvPrefixes;
+        if (prefixes == null) {
+            prefixes = Utils.cpvPrefixes(relevantCpvCodes);
+            relevantCpvPrefixes = prefixes;
+        }
+        return prefixes;
     }
 
     public String getSummary() {
@@ -84,7 +103,7 @@ public class GppDocument {
     }
 
     public boolean isApplicable(List<String> cpvCodes) {
-        return Utils.hasMatchingCpvs(cpvCodes, relevantCpvCodes);
+        return Utils.hasMatchingCpvs(cpvCodes, relevantCpvCodes, getRelevantCpvPrefixes());
     }
 
     @Override
@@ -1,6 +1,10 @@
 package it.polimi.gpplib.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+
+import it.polimi.gpplib.utils.PatchTemplate;
+
 import java.util.List;
 
 /**
@@ -15,6 +19,9 @@ public class GppPatch {
     private String pathInLot;
     private String value;
 
+    // compiled value, derived from value
+    private PatchTemplate template;
+
     public GppPatch() {
     }
 
@@ -64,6 +71,21 @@ public class GppPatch {
 
     public void setValue(String value) {
         this.value = value;
+        this.template = null;
+    }
+
+    /**
+     * Returns the value compiled into a {@link PatchTemplate}, or null if the
+     * value is null. It is compiled once and reset by {@link #setValue(String)}.
+     */
+    @JsonIgnore
+    public PatchTemplate getTemplate() {
+        PatchTemplate compiled = template;
+        if (compiled == null && value != null) {
+            compiled = PatchTemplate.compile(value);
+            template = compiled;
+        }
+        return compiled;
     }
 
     @Override
@@ -1,11 +1,20 @@
 package it.polimi.gpplib.model;
 
 import org.w3c.dom.Document;
+import it.polimi.gpplib.utils.DomPath;
 import it.polimi.gpplib.utils.XmlUtils;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,9 +47,33 @@ public class Notice {
 
     private static final Logger logger = LoggerFactory.getLogger(Notice.class);
 
+    private static final DomPath LOT_PATH = DomPath.compile(Constants.PATH_LOT);
+    private static final DomPath LOT_ID_PATH = DomPath.compile(Constants.PATH_IN_LOT_ID);
+
     /** The underlying XML document representing the procurement notice. */
     private Document doc;
 
+    /** Lot nodes by lowercased lot ID, built lazily, see {@link #getLotNode}. */
+    private Map<String, Node> lotIndex;
+    /** Non-empty lot IDs in document order, rebuilt together with the index. */
+    private List<String> lotIds;
+
+    private DerivedFacts derivedFacts = new DerivedFacts();
+
+    /**
+     * Memoized values read from the document, replaced as a whole by
+     * {@link #markModified()}.
+     */
+    private static final class DerivedFacts {
+        private boolean noticeLanguageLoaded;
+        private String noticeLanguage;
+        private boolean eFormsSdkVersionLoaded;
+        private String eFormsSdkVersion;
+        private List<String> procurementProjectCpvs;
+        /** By lowercased lot ID (see {@link Notice#lotKey}). */
+        private final Map<String, List<String>> lotCpvs = new HashMap<>();
+    }
+
     /**
      * Creates a new Notice by parsing the provided XML string.
      * 
@@ -55,6 +88,32 @@ public class Notice {
         logger.debug("Notice created successfully from XML");
     }
 
+    /**
+     * Creates a new Notice wrapping an already parsed XML document, e.g. one loaded
+     * through {@link XmlUtils#loadDocument(java.io.InputStream)}.
+     * The document is not copied.
+     * 
+     * @param doc the parsed procurement notice
+     * @throws IllegalArgumentException if the document is null
+     */
+    public Notice(Document doc) {
+        if (doc == null) {
+            throw new IllegalArgumentException("Notice document must not be null");
+        }
+        this.doc = doc;
+    }
+
+    /**
+     * Returns an independent deep copy of this notice, made by cloning the
+     * underlying document in memory (no serialization or re-parsing). Changes to
+     * either notice are not visible in the other.
+     * 
+     * @return a copy of this notice
+     */
+    public Notice copy() {
+        return new Notice((Document) doc.cloneNode(true));
+    }
+
     /**
      * Converts the notice back to an XML string representation.
      * 
@@ -64,6 +123,61 @@ public class Notice {
         return XmlUtils.docToString(doc);
     }
 
+    /**
+     * Writes the indented XML representation of this notice to the stream, in the
+     * given charset. The stream is not closed.
+     *
+     * @param out     the stream to write to
+     * @param charset the output encoding, also declared in the XML declaration
+     * @throws it.polimi.gpplib.utils.XmlUtils.XmlUtilsException if the notice
+     *                                                           cannot be written
+     */
+    public void writeTo(OutputStream out, Charset charset) {
+        writeTo(out, charset, true);
+    }
+
+    /**
+     * Writes the XML representation of this notice to the stream, in the given
+     * charset. The stream is not closed.
+     *
+     * @param out     the stream to write to
+     * @param charset the output encoding, also declared in the XML declaration
+     * @param indent  false to skip indentation, which is cheaper and produces a
+     *                smaller output
+     * @throws it.polimi.gpplib.utils.XmlUtils.XmlUtilsException if the notice
+     *                                                           cannot be written
+     */
+    public void writeTo(OutputStream out, Charset charset, boolean indent) {
+        XmlUtils.writeDocument(doc, out, charset, indent);
+    }
+
+    /**
+     * Writes the indented XML representation of this notice to the writer, same as
+     * {@link #toXmlString()} but without building the whole string in memory. The
+     * writer is not closed.
+     *
+     * @param writer the writer to write to
+     * @throws it.polimi.gpplib.utils.XmlUtils.XmlUtilsException if the notice
+     *                                                           cannot be written
+     */
+    public void writeTo(Writer writer) {
+        writeTo(writer, true);
+    }
+
+    /**
+     * Writes the XML representation of this notice to the writer. The writer is
+     * not closed.
+     *
+     * @param writer the writer to write to
+     * @param indent false to skip indentation, which is cheaper and produces a
+     *               smaller output
+     * @throws it.polimi.gpplib.utils.XmlUtils.XmlUtilsException if the notice
+     *                                                           cannot be written
+     */
+    public void writeTo(Writer writer, boolean indent) {
+        XmlUtils.writeDocument(doc, writer, indent);
+    }
+
     /**
      * Provides access to the underlying Document object.
      * This method is mostly intended for patch handlers to access the XML structure
@@ -83,11 +197,19 @@ public class Notice {
      * notice is published (e.g., "ENG" for English, "ITA" for Italian, "SPA" for
      * Spanish).
      * 
+     * <p>
+     * The value is memoized until {@link #markModified()} is called.
+     * 
      * @return the notice language code as a string, or null if not found
      */
     public String getNoticeLanguage() {
-        Node node = XmlUtils.getNodeAtPath(doc.getDocumentElement(), Constants.PATH_NOTICE_LANGUAGE);
-        return node != null ? node.getTextContent().trim() : null;
+        DerivedFacts facts = derivedFacts;
+        if (!facts.noticeLanguageLoaded) {
+            Node node = XmlUtils.getNodeAtPath(doc.getDocumentElement(), Constants.PATH_NOTICE_LANGUAGE);
+            facts.noticeLanguage = node != null ? node.getTextContent().trim() : null;
+            facts.noticeLanguageLoaded = true;
+        }
+        return facts.noticeLanguage;
     }
 
     /**
@@ -134,41 +256,54 @@ public class Notice {
      * additional CPV codes into a single list. This is useful for comprehensive
      * analysis of all procurement categories covered by the project.
      * 
+     * <p>
+     * The value is memoized until {@link #markModified()} is called; each call
+     * returns a new copy of it.
+     * 
      * @return a list containing all CPV codes in the order: [main, additional...]
      */
     public List<String> getAllProcurementProjectCpvs() {
-        List<String> cpvs = new ArrayList<>();
-        String mainCpv = getProcurementProjectMainCpv();
-        if (mainCpv != null) {
-            cpvs.add(mainCpv);
+        DerivedFacts facts = derivedFacts;
+        if (facts.procurementProjectCpvs == null) {
+            List<String> cpvs = new ArrayList<>();
+            String mainCpv = getProcurementProjectMainCpv();
+            if (mainCpv != null) {
+                cpvs.add(mainCpv);
+            }
+            cpvs.addAll(getProcurementProjectAdditionalCpvs());
+            logger.debug("Found {} total CPV codes for procurement project", cpvs.size());
+            facts.procurementProjectCpvs = Collections.unmodifiableList(cpvs);
         }
-        cpvs.addAll(getProcurementProjectAdditionalCpvs());
-        logger.debug("Found {} total CPV codes for procurement project", cpvs.size());
-        return cpvs;
+        return new ArrayList<>(facts.procurementProjectCpvs);
     }
 
     /**
      * Finds the ProcurementProjectLot node for a given lot ID.
      * 
      * <p>
-     * This method searches through all procurement lots in the notice,
-     * checks their ID elements, and returns the XML node of the lot that
-     * matches the specified lot ID. The comparison is case-insensitive.
+     * Lookups go through a case-insensitive lot ID index that is built on first
+     * use. A cached node is only returned if it is still a lot of this notice with
+     * the same ID, and the index is rebuilt once on a miss, so the lookup stays
+     * correct when patches modify the document. If several lots share the same ID,
+     * the first one in document order is returned.
      * 
      * @param lotId the ID of the lot to find
      * @return the XML Node representing the lot, or null if not found
      */
     public Node getLotNode(String lotId) {
-        NodeList lots = XmlUtils.getNodesAtPath(doc.getDocumentElement(), Constants.PATH_LOT);
-        for (int i = 0; i < lots.getLength(); i++) {
-            Node lot = lots.item(i);
-            String id = XmlUtils.getNodeValueAtPath(lot, Constants.PATH_IN_LOT_ID);
-            if (id != null && lotId.equalsIgnoreCase(id)) {
-                return lot;
-            }
+        if (lotId == null) {
+            return null;
         }
-
-        return null;
+        String key = lotKey(lotId);
+        if (lotIndex == null) {
+            rebuildLotIndex();
+        }
+        Node lot = lotIndex.get(key);
+        if (lot != null && isIndexedLotValid(lot, key)) {
+            return lot;
+        }
+        rebuildLotIndex();
+        return lotIndex.get(key);
     }
 
     public boolean doesPathExistInLot(String lotId, String path) {
@@ -181,27 +316,68 @@ public class Notice {
     }
 
     /**
-     * Returns the list of lot IDs present in the notice.
+     * Returns the list of lot IDs present in the notice, in document order. Lots
+     * with an empty ID are skipped.
+     * 
+     * <p>
+     * This always rescans the lots of the document and refreshes the lot index
+     * used by {@link #getLotNode(String)}.
      * 
-     * @return
+     * @return a new list with the lot IDs
      */
     public List<String> getLotIds() {
-        List<String> lotIds = new ArrayList<>();
-        NodeList lots = XmlUtils.getNodesAtPath(doc.getDocumentElement(), Constants.PATH_LOT);
-        for (int i = 0; i < lots.getLength(); i++) {
-            Node lot = lots.item(i);
-            String id = XmlUtils.getNodeValueAtPath(lot, Constants.PATH_IN_LOT_ID);
-            if (id != null && !id.isEmpty()) {
-                lotIds.add(id);
+        rebuildLotIndex();
+        logger.debug("Found {} lots in notice", lotIds.size());
+        return new ArrayList<>(lotIds);
+    }
+
+    private void rebuildLotIndex() {
+        Map<String, Node> index = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (Node lot : LOT_PATH.selectAll(doc.getDocumentElement())) {
+            String id = getLotId(lot);
+            if (id == null) {
+                continue;
+            }
+            index.putIfAbsent(lotKey(id), lot);
+            if (!id.isEmpty()) {
+                ids.add(id);
             }
         }
-        logger.debug("Found {} lots in notice", lotIds.size());
-        return lotIds;
+        lotIndex = index;
+        lotIds = ids;
+    }
+
+    private boolean isIndexedLotValid(Node lot, String key) {
+        if (lot.getParentNode() != doc.getDocumentElement()) {
+            return false;
+        }
+        String id = getLotId(lot);
+        return id != null && lotKey(id).equals(key);
     }
 
+    private static String getLotId(Node lot) {
+        Node idNode = LOT_ID_PATH.selectFirst(lot);
+        return idNode != null ? idNode.getTextContent().trim() : null;
+    }
+
+    /** Case-insensitive key of a lot ID in the lot index. */
+    private static String lotKey(String lotId) {
+        return lotId.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the eForms SDK version of the notice (its CustomizationID).
+     * The value is memoized until {@link #markModified()} is called.
+     */
     public String getEFormsSdkVersion() {
-        Node node = XmlUtils.getNodeAtPath(doc.getDocumentElement(), Constants.PATH_EFORMS_SDK_VERSION);
-        return node != null ? node.getTextContent().trim() : null;
+        DerivedFacts facts = derivedFacts;
+        if (!facts.eFormsSdkVersionLoaded) {
+            Node node = XmlUtils.getNodeAtPath(doc.getDocumentElement(), Constants.PATH_EFORMS_SDK_VERSION);
+            facts.eFormsSdkVersion = node != null ? node.getTextContent().trim() : null;
+            facts.eFormsSdkVersionLoaded = true;
+        }
+        return facts.eFormsSdkVersion;
     }
 
     /**
@@ -236,15 +412,37 @@ public class Notice {
      * Returns a list of all CPV codes (main and additional) for the given lot.
      * The returned list is in the order: [main, additional...].
      * If the lot does not exist, returns an empty list.
+     * The value is memoized until {@link #markModified()} is called; each call
+     * returns a new copy of it.
      */
     public List<String> getAllLotCpvs(String lotId) {
+        String key = lotId != null ? lotKey(lotId) : null;
+        Map<String, List<String>> lotCpvs = derivedFacts.lotCpvs;
+        List<String> cached = lotCpvs.get(key);
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
         List<String> cpvs = new ArrayList<>();
         String mainCpv = getLotMainCpv(lotId);
         if (mainCpv != null) {
             cpvs.add(mainCpv);
         }
         cpvs.addAll(getLotAdditionalCpvs(lotId));
-        return cpvs;
+        cached = Collections.unmodifiableList(cpvs);
+        lotCpvs.put(key, cached);
+        return new ArrayList<>(cached);
+    }
+
+    /**
+     * Signals that the underlying document has been modified, which discards the
+     * memoized values of {@link #getNoticeLanguage()},
+     * {@link #getEFormsSdkVersion()}, {@link #getAllProcurementProjectCpvs()} and
+     * {@link #getAllLotCpvs(String)}. Code that changes the document returned by
+     * {@link #getDoc()} must call it, as {@link it.polimi.gpplib.utils.GppPatchApplier}
+     * does.
+     */
+    public void markModified() {
+        derivedFacts = new DerivedFacts();
     }
 
     @Override
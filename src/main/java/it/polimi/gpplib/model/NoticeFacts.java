@@ -0,0 +1,149 @@
+package it.polimi.gpplib.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Immutable summary of the parts of a procurement notice that are needed for
+ * the GPP analysis: notice language, eForms SDK version, lot IDs and the CPV
+ * codes of the procurement project and of each lot.
+ *
+ * <p>
+ * Unlike {@link Notice}, it does not keep the XML document, so its size only
+ * depends on the number of lots and CPV codes. It can be built from a loaded
+ * notice with {@link #fromNotice(Notice)}, or straight from the XML with
+ * {@link it.polimi.gpplib.utils.NoticeFactsExtractor} without building a DOM.
+ */
+public final class NoticeFacts {
+
+    private final String noticeLanguage;
+    private final String eFormsSdkVersion;
+    private final List<String> procurementProjectCpvs;
+    private final List<String> lotIds;
+    /** Case-insensitive on the lot ID, like {@link Notice#getLotNode(String)}. */
+    private final Map<String, List<String>> lotCpvs;
+
+    /**
+     * Creates the facts of a notice.
+     *
+     * @param noticeLanguage         the notice language code, may be null
+     * @param eFormsSdkVersion       the eForms SDK version, may be null
+     * @param procurementProjectCpvs the project CPV codes, in the order [main,
+     *                               additional...]
+     * @param lotIds                 the lot IDs, in document order
+     * @param lotCpvs                the CPV codes of each lot, in the order [main,
+     *                               additional...]; lots without an entry have no
+     *                               CPV codes. If two keys only differ in case,
+     *                               the first one wins
+     */
+    public NoticeFacts(String noticeLanguage, String eFormsSdkVersion, List<String> procurementProjectCpvs,
+            List<String> lotIds, Map<String, List<String>> lotCpvs) {
+        this.noticeLanguage = noticeLanguage;
+        this.eFormsSdkVersion = eFormsSdkVersion;
+        this.procurementProjectCpvs = procurementProjectCpvs != null ? List.copyOf(procurementProjectCpvs)
+                : List.of();
+        this.lotIds = lotIds != null ? List.copyOf(lotIds) : List.of();
+        Map<String, List<String>> cpvsPerLot = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (lotCpvs != null) {
+            for (Map.Entry<String, List<String>> entry : lotCpvs.entrySet()) {
+                cpvsPerLot.putIfAbsent(entry.getKey(),
+                        entry.getValue() != null ? List.copyOf(entry.getValue()) : List.of());
+            }
+        }
+        this.lotCpvs = Collections.unmodifiableMap(cpvsPerLot);
+    }
+
+    /**
+     * Extracts the facts from an already loaded notice.
+     *
+     * @param notice the notice
+     * @return the facts of the notice
+     * @throws it.polimi.gpplib.utils.XmlUtils.XmlUtilsException if a lot has no
+     *                                                           main CPV code
+     */
+    public static NoticeFacts fromNotice(Notice notice) {
+        List<String> lotIds = notice.getLotIds();
+        Map<String, List<String>> lotCpvs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String lotId : lotIds) {
+            if (!lotCpvs.containsKey(lotId)) {
+                lotCpvs.put(lotId, notice.getAllLotCpvs(lotId));
+            }
+        }
+        return new NoticeFacts(notice.getNoticeLanguage(), notice.getEFormsSdkVersion(),
+                notice.getAllProcurementProjectCpvs(), lotIds, lotCpvs);
+    }
+
+    /**
+     * @return the notice language code, or null if not present
+     */
+    public String getNoticeLanguage() {
+        return noticeLanguage;
+    }
+
+    /**
+     * @return the eForms SDK version (CustomizationID), or null if not present
+     */
+    public String getEFormsSdkVersion() {
+        return eFormsSdkVersion;
+    }
+
+    /**
+     * @return all CPV codes of the procurement project, in the order [main,
+     *         additional...]
+     */
+    public List<String> getAllProcurementProjectCpvs() {
+        return procurementProjectCpvs;
+    }
+
+    /**
+     * @return the lot IDs, in document order
+     */
+    public List<String> getLotIds() {
+        return lotIds;
+    }
+
+    /**
+     * Returns all CPV codes of the given lot, in the order [main, additional...].
+     * The lot ID comparison is case-insensitive.
+     *
+     * @param lotId the lot ID
+     * @return the CPV codes of the lot, empty if the lot does not exist
+     */
+    public List<String> getAllLotCpvs(String lotId) {
+        List<String> cpvs = lotId != null ? lotCpvs.get(lotId) : null;
+        return cpvs != null ? cpvs : List.of();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        NoticeFacts that = (NoticeFacts) o;
+        return Objects.equals(noticeLanguage, that.noticeLanguage) &&
+                Objects.equals(eFormsSdkVersion, that.eFormsSdkVersion) &&
+                procurementProjectCpvs.equals(that.procurementProjectCpvs) &&
+                lotIds.equals(that.lotIds) &&
+                new ArrayList<>(lotCpvs.entrySet()).equals(new ArrayList<>(that.lotCpvs.entrySet()));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(noticeLanguage, eFormsSdkVersion, procurementProjectCpvs, lotIds, lotCpvs);
+    }
+
+    @Override
+    public String toString() {
+        return "NoticeFacts{" +
+                "noticeLanguage='" + noticeLanguage + '\'' +
+                ", eFormsSdkVersion='" + eFormsSdkVersion + '\'' +
+                ", procurementProjectCpvs=" + procurementProjectCpvs +
+                ", lotCpvs=" + lotCpvs +
+                '}';
+    }
+}
@@ -1,6 +1,12 @@
 package it.polimi.gpplib.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+
+import it.polimi.gpplib.utils.XmlFragment;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -18,19 +24,26 @@ public class SuggestedGppPatch {
     private String description;
     private String lotId;
 
+    // cached hashCode, 0 if not computed yet; reset by the setters
+    private int hash;
+
+    // parsed value, built on demand; reset by setValue
+    private XmlFragment valueFragment;
+
     public SuggestedGppPatch() {
     }
 
     public SuggestedGppPatch(String name, List<String> btIds, String dependsOn, String path, String value,
             String op, String description, String lotId) {
         this.name = name;
-        this.btIds = btIds;
+        this.btIds = copyOf(btIds);
         this.dependsOn = dependsOn;
         this.path = path;
         this.value = value;
         this.op = op;
         this.description = description;
         this.lotId = lotId;
+        this.hash = 0;
     }
 
     public String getName() {
@@ -39,14 +52,24 @@ public class SuggestedGppPatch {
 
     public void setName(String name) {
         this.name = name;
+        this.hash = 0;
     }
 
+    /**
+     * @return the BT ids (unmodifiable, they are part of the cached hash)
+     */
     public List<String> getBtIds() {
         return btIds;
     }
 
     public void setBtIds(List<String> btIds) {
-        this.btIds = btIds;
+        this.btIds = copyOf(btIds);
+        this.hash = 0;
+    }
+
+    // unlike List.copyOf, allows null elements
+    private static List<String> copyOf(List<String> list) {
+        return list != null ? Collections.unmodifiableList(new ArrayList<>(list)) : null;
     }
 
     public String getDependsOn() {
@@ -55,6 +78,7 @@ public class SuggestedGppPatch {
 
     public void setDependsOn(String dependsOn) {
         this.dependsOn = dependsOn;
+        this.hash = 0;
     }
 
     public String getPath() {
@@ -63,6 +87,7 @@ public class SuggestedGppPatch {
 
     public void setPath(String pathInLot) {
         this.path = pathInLot;
+        this.hash = 0;
     }
 
     public String getValue() {
@@ -71,6 +96,36 @@ public class SuggestedGppPatch {
 
     public void setValue(String value) {
         this.value = value;
+        this.valueFragment = null;
+        this.hash = 0;
+    }
+
+    /**
+     * Returns the value as an {@link XmlFragment}, so that applying the patch
+     * (possibly more than once) parses the value at most once. It is not part of
+     * the JSON form of the patch, which only has the value string.
+     * 
+     * @return the fragment, or null if the value is null
+     */
+    @JsonIgnore
+    public XmlFragment getValueFragment() {
+        XmlFragment fragment = valueFragment;
+        if (fragment == null && value != null) {
+            fragment = new XmlFragment(value);
+            valueFragment = fragment;
+        }
+        return fragment;
+    }
+
+    /**
+     * Sets the value from an {@link XmlFragment}, e.g. one shared by several
+     * patches with the same value.
+     */
+    @JsonIgnore
+    public void setValueFragment(XmlFragment valueFragment) {
+        this.value = valueFragment != null ? valueFragment.getXml() : null;
+        this.valueFragment = valueFragment;
+        this.hash = 0;
     }
 
     public String getOp() {
@@ -79,6 +134,7 @@ public class SuggestedGppPatch {
 
     public void setOp(String op) {
         this.op = op;
+        this.hash = 0;
     }
 
     public String getDescription() {
@@ -87,6 +143,7 @@ public class SuggestedGppPatch {
 
     public void setDescription(String description) {
         this.description = description;
+        this.hash = 0;
     }
 
     public String getLotId() {
@@ -95,6 +152,7 @@ public class SuggestedGppPatch {
 
     public void setLotId(String lotId) {
         this.lotId = lotId;
+        this.hash = 0;
     }
 
     @Override
@@ -120,6 +178,10 @@ public class SuggestedGppPatch {
 
         SuggestedGppPatch that = (SuggestedGppPatch) o;
 
+        // cheap check before comparing the values, which can be long
+        if (hash != 0 && that.hash != 0 && hash != that.hash)
+            return false;
+
         // we only care about the name, path, value, op and lotId
 
         if (name != null ? !name.equals(that.name) : that.name != null)
@@ -137,16 +199,26 @@ public class SuggestedGppPatch {
         return lotId != null ? lotId.equals(that.lotId) : that.lotId == null;
     }
 
+    /**
+     * Consistent with {@link #equals(Object)}, so the description is not part of
+     * it. The hash is computed once, as suggested patches are compared
+     * repeatedly while being de-duplicated, and reset when a field is set (the
+     * btIds are copied for that reason, so that they can't change afterwards).
+     */
     @Override
     public int hashCode() {
-        int result = name != null ? name.hashCode() : 0;
+        int result = hash;
+        if (result != 0) {
+            return result;
+        }
+        result = name != null ? name.hashCode() : 0;
         result = 31 * result + (btIds != null ? btIds.hashCode() : 0);
         result = 31 * result + (dependsOn != null ? dependsOn.hashCode() : 0);
         result = 31 * result + (path != null ? path.hashCode() : 0);
         result = 31 * result + (value != null ? value.hashCode() : 0);
         result = 31 * result + (op != null ? op.hashCode() : 0);
-        result = 31 * result + (description != null ? description.hashCode() : 0);
         result = 31 * result + (lotId != null ? lotId.hashCode() : 0);
+        hash = result;
         return result;
     }
 }
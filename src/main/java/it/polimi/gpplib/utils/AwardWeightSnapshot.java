@@ -0,0 +1,120 @@
+package it.polimi.gpplib.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import it.polimi.gpplib.model.Constants;
+import it.polimi.gpplib.model.Notice;
+
+/**
+ * The award criteria of a notice as they were before patching: for every lot, a
+ * map from criterion name to its original weight.
+ *
+ * <p>
+ * It replaces a full copy of the original notice in
+ * {@link GppPatchApplier#updateAwardCriteriaWeights(Notice, AwardWeightSnapshot)}:
+ * it is captured in one pass over the notice, and criteria are then matched by
+ * name with a hash lookup. Lot IDs are case-insensitive. If several lots share
+ * an ID, or several criteria in a lot share a name, the first one in document
+ * order wins.
+ */
+public final class AwardWeightSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(AwardWeightSnapshot.class);
+
+    /** Per lowercased lot ID, criterion name to weight (null if missing/invalid). */
+    private final Map<String, Map<String, Integer>> weightsPerLot;
+
+    private AwardWeightSnapshot(Map<String, Map<String, Integer>> weightsPerLot) {
+        this.weightsPerLot = weightsPerLot;
+    }
+
+    /**
+     * Captures the names and weights of the award criteria of every lot of the
+     * notice.
+     *
+     * @param notice the notice, before any patch is applied
+     * @return the snapshot
+     */
+    public static AwardWeightSnapshot capture(Notice notice) {
+        Map<String, Map<String, Integer>> weightsPerLot = new HashMap<>();
+        for (String lotId : notice.getLotIds()) {
+            String lotKey = lotKey(lotId);
+            if (weightsPerLot.containsKey(lotKey)) {
+                continue;
+            }
+            Map<String, Integer> weights = new HashMap<>();
+            Node lot = notice.getLotNode(lotId);
+            if (lot != null) {
+                NodeList criteria = XmlUtils.getNodesAtPath(lot, Constants.PATH_AWARD_CRITERION);
+                for (int i = 0; i < criteria.getLength(); i++) {
+                    Node criterion = criteria.item(i);
+                    String name = getCriterionName(criterion);
+                    if (name != null && !name.isEmpty() && !weights.containsKey(name)) {
+                        weights.put(name, getCriterionWeight(criterion));
+                    }
+                }
+            }
+            weightsPerLot.put(lotKey, Collections.unmodifiableMap(weights));
+        }
+        logger.debug("Captured award criteria weights for {} lots", weightsPerLot.size());
+        return new AwardWeightSnapshot(weightsPerLot);
+    }
+
+    /**
+     * Returns whether the lot had an award criterion with the given name.
+     */
+    public boolean hasCriterion(String lotId, String criterionName) {
+        Map<String, Integer> weights = getLotWeights(lotId);
+        return weights != null && criterionName != null && weights.containsKey(criterionName);
+    }
+
+    /**
+     * Returns the original weight of the named award criterion of the lot, or null
+     * if the criterion didn't exist or had no numeric weight.
+     */
+    public Integer getWeight(String lotId, String criterionName) {
+        Map<String, Integer> weights = getLotWeights(lotId);
+        return weights != null && criterionName != null ? weights.get(criterionName) : null;
+    }
+
+    private Map<String, Integer> getLotWeights(String lotId) {
+        return lotId != null ? weightsPerLot.get(lotKey(lotId)) : null;
+    }
+
+    /**
+     * Returns the trimmed name of the criterion, or null if it has none.
+     */
+    static String getCriterionName(Node criterion) {
+        Node nameNode = XmlUtils.getNodeAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_NAME);
+        return nameNode != null ? nameNode.getTextContent().trim() : null;
+    }
+
+    private static Integer getCriterionWeight(Node criterion) {
+        Node weightNode = XmlUtils.getNodeAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_WEIGHT);
+        if (weightNode == null) {
+            return null;
+        }
+        String weight = weightNode.getTextContent().trim();
+        if (weight.isEmpty() || Constants.PLACEHOLDER_WEIGHT.equals(weight)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(weight);
+        } catch (NumberFormatException e) {
+            logger.debug("Could not parse original weight: {}", weight);
+            return null;
+        }
+    }
+
+    private static String lotKey(String lotId) {
+        return lotId.toLowerCase(Locale.ROOT);
+    }
+}
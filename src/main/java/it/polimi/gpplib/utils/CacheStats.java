@@ -0,0 +1,48 @@
+package it.polimi.gpplib.utils;
+
+import java.util.Locale;
+
+/**
+ * Immutable point-in-time view of the hit/miss counters of one of the library
+ * caches.
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+
+    public CacheStats(long hitCount, long missCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Returns the ratio of lookups that were served from the cache, or 1.0 if the
+     * cache has not been used yet.
+     */
+    public double getHitRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", hitRate=" + String.format(Locale.ROOT, "%.3f", getHitRate()) +
+                '}';
+    }
+}
@@ -0,0 +1,319 @@
+package it.polimi.gpplib.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Index of catalog items (GPP criteria, GPP documents) by their relevant CPV
+ * codes, giving the same result as {@link Utils#hasMatchingCpvs(List, List)}
+ * without scanning the whole catalog.
+ *
+ * <p>
+ * Each relevant CPV code is inserted into a digit trie with its trailing zeros
+ * removed, so a notice CPV code matches every item found on the path it walks:
+ * lookups cost one walk per notice CPV code, independent of the catalog size.
+ * Relevant CPV codes made only of zeros cannot have children and only match
+ * exactly. Items are returned in catalog order.
+ *
+ * @param <T> the type of the indexed items
+ */
+public final class CpvTrie<T> {
+
+    private final List<T> items;
+    private final TrieNode root = new TrieNode();
+    /** Codes whose trimmed prefix is empty, which only match exactly. */
+    private final Map<String, int[]> exactOnly = new HashMap<>();
+
+    private CpvTrie(List<T> items) {
+        this.items = items;
+    }
+
+    /**
+     * Builds the index of the given items.
+     *
+     * @param items the catalog, in the order results should be returned
+     * @param cpvs  returns the relevant CPV codes of an item, may return null
+     * @return the index
+     */
+    public static <T> CpvTrie<T> build(List<T> items, Function<T, List<String>> cpvs) {
+        CpvTrie<T> trie = new CpvTrie<>(List.copyOf(items));
+        Map<String, List<Integer>> exactOnly = new HashMap<>();
+        for (int i = 0; i < trie.items.size(); i++) {
+            List<String> codes = cpvs.apply(trie.items.get(i));
+            if (codes == null) {
+                continue;
+            }
+            for (String code : codes) {
+                if (code == null) {
+                    continue;
+                }
+                String prefix = Utils.trimTrailingZeros(code);
+                if (prefix.isEmpty()) {
+                    exactOnly.computeIfAbsent(code, k -> new ArrayList<>()).add(i);
+                } else {
+                    trie.insert(prefix, i);
+                }
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : exactOnly.entrySet()) {
+            trie.exactOnly.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        trie.root.compact();
+        return trie;
+    }
+
+    /**
+     * Returns the items having at least one relevant CPV code that matches one of
+     * the given CPV codes, either exactly or as a parent.
+     *
+     * @param noticeCpvs the CPV codes to look up
+     * @return the matching items, in catalog order
+     */
+    public List<T> findMatching(List<String> noticeCpvs) {
+        BitSet matches = new BitSet(items.size());
+        for (String noticeCpv : noticeCpvs) {
+            if (noticeCpv != null) {
+                collect(noticeCpv, matches);
+            }
+        }
+        if (matches.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(items.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of indexed items
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Writes the index structure, without the items, for
+     * {@link #readFrom(ByteBuffer, List)}.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(items.size());
+        out.writeInt(exactOnly.size());
+        for (Map.Entry<String, int[]> entry : exactOnly.entrySet()) {
+            byte[] code = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(code.length);
+            out.write(code);
+            writeIndexes(out, entry.getValue());
+        }
+        root.writeTo(out);
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo(DataOutput)} over the same items,
+     * without rebuilding it.
+     *
+     * @throws IllegalArgumentException if the data is not a valid index of the
+     *                                  items
+     */
+    static <T> CpvTrie<T> readFrom(ByteBuffer in, List<T> items) {
+        CpvTrie<T> trie = new CpvTrie<>(List.copyOf(items));
+        if (in.getInt() != trie.items.size()) {
+            throw new IllegalArgumentException("CPV index does not match the number of items");
+        }
+        int exactCount = in.getInt();
+        for (int i = 0; i < exactCount; i++) {
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) {
+                throw new IllegalArgumentException("Invalid CPV code length: " + length);
+            }
+            byte[] code = new byte[length];
+            in.get(code);
+            trie.exactOnly.put(new String(code, StandardCharsets.UTF_8), readIndexes(in, trie.items.size()));
+        }
+        trie.root.readFrom(in, trie.items.size());
+        return trie;
+    }
+
+    private static void writeIndexes(DataOutput out, int[] indexes) throws IOException {
+        out.writeInt(indexes.length);
+        for (int index : indexes) {
+            out.writeInt(index);
+        }
+    }
+
+    private static int[] readIndexes(ByteBuffer in, int itemCount) {
+        int length = in.getInt();
+        if (length < 0 || length > itemCount) {
+            throw new IllegalArgumentException("Invalid CPV index entry size: " + length);
+        }
+        int[] indexes = new int[length];
+        for (int i = 0; i < length; i++) {
+            indexes[i] = in.getInt();
+            if (indexes[i] < 0 || indexes[i] >= itemCount) {
+                throw new IllegalArgumentException("Invalid CPV index item: " + indexes[i]);
+            }
+        }
+        return indexes;
+    }
+
+    private void collect(String noticeCpv, BitSet matches) {
+        int[] exact = exactOnly.get(noticeCpv);
+        if (exact != null) {
+            set(exact, matches);
+        }
+        TrieNode node = root;
+        for (int i = 0; i < noticeCpv.length() && node != null; i++) {
+            node = node.child(noticeCpv.charAt(i));
+            if (node != null) {
+                set(node.itemIndexes, matches);
+            }
+        }
+    }
+
+    private void insert(String prefix, int itemIndex) {
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.getOrCreateChild(prefix.charAt(i));
+        }
+        node.add(itemIndex);
+    }
+
+    private static void set(int[] indexes, BitSet matches) {
+        for (int index : indexes) {
+            matches.set(index);
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static final class TrieNode {
+
+        private static final int[] NO_ITEMS = new int[0];
+
+        // CPV codes are digits, anything else goes to the fallback map
+        private TrieNode[] digits;
+        private Map<Character, TrieNode> others;
+        private int[] itemIndexes = NO_ITEMS;
+        private int itemCount;
+
+        private TrieNode child(char c) {
+            if (c >= '0' && c <= '9') {
+                return digits != null ? digits[c - '0'] : null;
+            }
+            return others != null ? others.get(c) : null;
+        }
+
+        private TrieNode getOrCreateChild(char c) {
+            TrieNode child = child(c);
+            if (child == null) {
+                child = new TrieNode();
+                if (c >= '0' && c <= '9') {
+                    if (digits == null) {
+                        digits = new TrieNode[10];
+                    }
+                    digits[c - '0'] = child;
+                } else {
+                    if (others == null) {
+                        others = new HashMap<>();
+                    }
+                    others.put(c, child);
+                }
+            }
+            return child;
+        }
+
+        private void add(int itemIndex) {
+            // items are inserted in catalog order, so the same item can only repeat at the end
+            if (itemCount > 0 && itemIndexes[itemCount - 1] == itemIndex) {
+                return;
+            }
+            if (itemCount == itemIndexes.length) {
+                int[] grown = new int[Math.max(4, itemCount * 2)];
+                System.arraycopy(itemIndexes, 0, grown, 0, itemCount);
+                itemIndexes = grown;
+            }
+            itemIndexes[itemCount++] = itemIndex;
+        }
+
+        private void writeTo(DataOutput out) throws IOException {
+            writeIndexes(out, itemCount == itemIndexes.length ? itemIndexes
+                    : Arrays.copyOf(itemIndexes, itemCount));
+            int digitMask = 0;
+            if (digits != null) {
+                for (int i = 0; i < digits.length; i++) {
+                    if (digits[i] != null) {
+                        digitMask |= 1 << i;
+                    }
+                }
+            }
+            out.writeShort(digitMask);
+            out.writeShort(others != null ? others.size() : 0);
+            for (int i = 0; digits != null && i < digits.length; i++) {
+                if (digits[i] != null) {
+                    digits[i].writeTo(out);
+                }
+            }
+            if (others != null) {
+                for (Map.Entry<Character, TrieNode> entry : others.entrySet()) {
+                    out.writeChar(entry.getKey());
+                    entry.getValue().writeTo(out);
+                }
+            }
+        }
+
+        private void readFrom(ByteBuffer in, int itemCount) {
+            itemIndexes = readIndexes(in, itemCount);
+            this.itemCount = itemIndexes.length;
+            int digitMask = in.getShort() & 0xFFFF;
+            int otherCount = in.getShort() & 0xFFFF;
+            if (digitMask >= 1 << 10) {
+                throw new IllegalArgumentException("Invalid CPV index node");
+            }
+            for (int i = 0; i < 10; i++) {
+                if ((digitMask & (1 << i)) != 0) {
+                    getOrCreateChild((char) ('0' + i)).readFrom(in, itemCount);
+                }
+            }
+            for (int i = 0; i < otherCount; i++) {
+                getOrCreateChild(in.getChar()).readFrom(in, itemCount);
+            }
+        }
+
+        private void compact() {
+            if (itemIndexes.length != itemCount) {
+                int[] trimmed = new int[itemCount];
+                System.arraycopy(itemIndexes, 0, trimmed, 0, itemCount);
+                itemIndexes = trimmed;
+            }
+            if (digits != null) {
+                for (TrieNode child : digits) {
+                    if (child != null) {
+                        child.compact();
+                    }
+                }
+            }
+            if (others != null) {
+                for (TrieNode child : others.values()) {
+                    child.compact();
+                }
+            }
+        }
+    }
+}
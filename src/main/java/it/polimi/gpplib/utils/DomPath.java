@@ -0,0 +1,517 @@
+package it.polimi.gpplib.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import it.polimi.gpplib.model.Constants;
+
+/**
+ * A precompiled, relative path made only of child steps, evaluated by walking
+ * the DOM directly instead of going through JAXP XPath.
+ *
+ * <p>
+ * Supported paths look like
+ * {@code cac:ProcurementProject/cac:MainCommodityClassification} where every
+ * step may carry simple predicates, optionally joined with {@code and}:
+ * <ul>
+ * <li>{@code [@attr='value']} - the element has an attribute with that
+ * value</li>
+ * <li>{@code [child/@attr='value']} - the element has a child with an
+ * attribute with that value</li>
+ * <li>{@code [child='value']} - the element has a child whose text content is
+ * that value</li>
+ * </ul>
+ * The child in the last two forms can also be a chain of child steps, such as
+ * {@code [cac:SubordinateAwardingCriterion/cbc:Name='value']}.
+ * Prefixes are resolved against {@link Constants#NAMESPACE_MAP}, and
+ * unprefixed names match elements without a namespace, as they do in XPath.
+ * Anything else (axes, functions, positional predicates, unknown prefixes...)
+ * is not compiled, and callers are expected to fall back to XPath.
+ *
+ * <p>
+ * Compiled paths are immutable and can be shared across threads.
+ */
+public final class DomPath {
+
+    private static final int MAX_CACHED_PATHS = 1024;
+    private static final Pattern NAME = Pattern.compile("([A-Za-z_][\\w.\\-]*:)?[A-Za-z_][\\w.\\-]*");
+
+    /** Marks paths that were already found not to be compilable. */
+    private static final DomPath UNSUPPORTED = new DomPath("", new Step[0]);
+    private static final Map<String, DomPath> compiledPaths = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final Step[] steps;
+
+    private DomPath(String path, Step[] steps) {
+        this.path = path;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles the given path.
+     *
+     * @param path the relative path to compile
+     * @return the compiled path, or null if the path uses XPath features that are
+     *         not supported by the direct navigator
+     */
+    public static DomPath compile(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        List<String> rawSteps = split(path, '/');
+        if (rawSteps == null) {
+            return null;
+        }
+        Step[] steps = new Step[rawSteps.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = parseStep(rawSteps.get(i).trim());
+            if (steps[i] == null) {
+                return null;
+            }
+        }
+        return new DomPath(path, steps);
+    }
+
+    /**
+     * Same as {@link #compile(String)}, but memoizes the result (including
+     * unsupported paths) in a bounded, process-wide map.
+     */
+    public static DomPath forPath(String path) {
+        if (path == null) {
+            return null;
+        }
+        DomPath compiled = compiledPaths.get(path);
+        if (compiled == null) {
+            compiled = compile(path);
+            if (compiled == null) {
+                compiled = UNSUPPORTED;
+            }
+            if (compiledPaths.size() < MAX_CACHED_PATHS) {
+                compiledPaths.put(path, compiled);
+            }
+        }
+        return compiled == UNSUPPORTED ? null : compiled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the first node (in document order) reached by this path from the
+     * context node, or null if there is none.
+     */
+    public Node selectFirst(Node context) {
+        return selectFirst(context, 0);
+    }
+
+    /**
+     * Returns all nodes reached by this path from the context node, in document
+     * order.
+     */
+    public List<Node> selectAll(Node context) {
+        List<Node> result = new ArrayList<>();
+        selectAll(context, 0, result);
+        return result;
+    }
+
+    /**
+     * Returns all nodes reached by this path from the context node as a
+     * {@link NodeList}.
+     */
+    public NodeList selectNodeList(Node context) {
+        return new ListNodeList(selectAll(context));
+    }
+
+    private Node selectFirst(Node node, int stepIndex) {
+        if (stepIndex == steps.length) {
+            return node;
+        }
+        Step step = steps[stepIndex];
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (step.matches(child)) {
+                Node found = selectFirst(child, stepIndex + 1);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the path is made of element names only, without
+     * predicates.
+     */
+    boolean isPlain() {
+        for (Step step : steps) {
+            if (step.conditions.length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether this path, evaluated from the context node, could select
+     * the given node or one of its descendants: the elements from the context
+     * down to the node match the first steps of the path. Also true if the node
+     * is not a descendant of the context. Predicates are ignored, so the answer
+     * is exact only for {@link #isPlain() plain} paths.
+     */
+    boolean mayReach(Node context, Node node) {
+        List<Node> chain = new ArrayList<>();
+        for (Node n = node; n != context; n = n.getParentNode()) {
+            if (n == null) {
+                return true;
+            }
+            chain.add(n);
+        }
+        if (chain.size() > steps.length) {
+            // the node is below the nodes selected by this path
+            return false;
+        }
+        for (int i = 0; i < chain.size(); i++) {
+            if (!steps[i].name.matchesElement(chain.get(chain.size() - 1 - i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void selectAll(Node node, int stepIndex, List<Node> result) {
+        if (stepIndex == steps.length) {
+            result.add(node);
+            return;
+        }
+        Step step = steps[stepIndex];
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (step.matches(child)) {
+                selectAll(child, stepIndex + 1, result);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DomPath{" + path + '}';
+    }
+
+    // --- compilation ---
+
+    private static Step parseStep(String rawStep) {
+        int bracket = rawStep.indexOf('[');
+        String name = bracket < 0 ? rawStep : rawStep.substring(0, bracket).trim();
+        QName qName = parseName(name);
+        if (qName == null) {
+            return null;
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        int i = bracket;
+        while (i >= 0 && i < rawStep.length()) {
+            if (rawStep.charAt(i) != '[') {
+                return null;
+            }
+            int end = findPredicateEnd(rawStep, i);
+            if (end < 0) {
+                return null;
+            }
+            List<String> terms = splitOnAnd(rawStep.substring(i + 1, end));
+            if (terms == null) {
+                return null;
+            }
+            for (String term : terms) {
+                Condition condition = parseCondition(term.trim());
+                if (condition == null) {
+                    return null;
+                }
+                conditions.add(condition);
+            }
+            i = end + 1;
+            while (i < rawStep.length() && Character.isWhitespace(rawStep.charAt(i))) {
+                i++;
+            }
+        }
+        return new Step(qName, conditions.toArray(new Condition[0]));
+    }
+
+    private static Condition parseCondition(String term) {
+        int eq = indexOutsideQuotes(term, '=');
+        if (eq <= 0) {
+            return null;
+        }
+        String lhs = term.substring(0, eq).trim();
+        String literal = parseLiteral(term.substring(eq + 1).trim());
+        if (literal == null) {
+            return null;
+        }
+
+        QName attribute = null;
+        String childPath = lhs;
+        int attributeStart = lhs.startsWith("@") ? 0 : lhs.indexOf("/@");
+        if (attributeStart >= 0) {
+            attribute = parseName(lhs.substring(attributeStart + (attributeStart == 0 ? 1 : 2)).trim());
+            if (attribute == null) {
+                return null;
+            }
+            childPath = lhs.substring(0, attributeStart);
+        }
+        QName[] children = new QName[0];
+        if (!childPath.isEmpty()) {
+            String[] names = childPath.split("/", -1);
+            children = new QName[names.length];
+            for (int i = 0; i < names.length; i++) {
+                children[i] = parseName(names[i].trim());
+                if (children[i] == null) {
+                    return null;
+                }
+            }
+        }
+        return new Condition(children, attribute, literal);
+    }
+
+    private static QName parseName(String name) {
+        if (!NAME.matcher(name).matches()) {
+            return null;
+        }
+        int colon = name.indexOf(':');
+        if (colon < 0) {
+            return new QName(null, name);
+        }
+        String namespaceUri = Constants.NAMESPACE_MAP.get(name.substring(0, colon));
+        return namespaceUri == null ? null : new QName(namespaceUri, name.substring(colon + 1));
+    }
+
+    private static String parseLiteral(String literal) {
+        if (literal.length() < 2) {
+            return null;
+        }
+        char quote = literal.charAt(0);
+        if ((quote != '\'' && quote != '"') || literal.charAt(literal.length() - 1) != quote) {
+            return null;
+        }
+        String value = literal.substring(1, literal.length() - 1);
+        return value.indexOf(quote) >= 0 ? null : value;
+    }
+
+    /**
+     * Splits on the separator when it's outside quotes and predicates. Returns
+     * null if there are empty parts (e.g. {@code //} or a leading {@code /}) or
+     * unbalanced brackets/quotes.
+     */
+    private static List<String> split(String path, char separator) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth < 0) {
+                    return null;
+                }
+            } else if (c == separator && depth == 0) {
+                if (i == start) {
+                    return null;
+                }
+                parts.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (quote != 0 || depth != 0 || start == path.length()) {
+            return null;
+        }
+        parts.add(path.substring(start));
+        return parts;
+    }
+
+    /** Returns the index of the closing bracket, or -1 for nested predicates. */
+    private static int findPredicateEnd(String step, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < step.length(); i++) {
+            char c = step.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                return -1;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> splitOnAnd(String predicate) {
+        List<String> terms = new ArrayList<>();
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < predicate.length(); i++) {
+            char c = predicate.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (predicate.startsWith(" and ", i)) {
+                terms.add(predicate.substring(start, i));
+                start = i + 5;
+                i += 4;
+            } else if (c == '(' || c == ')' || c == '|' || predicate.startsWith(" or ", i)) {
+                return null;
+            }
+        }
+        terms.add(predicate.substring(start));
+        return terms;
+    }
+
+    private static int indexOutsideQuotes(String term, char target) {
+        char quote = 0;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // --- compiled representation ---
+
+    private static final class QName {
+        private final String namespaceUri;
+        private final String localName;
+
+        private QName(String namespaceUri, String localName) {
+            this.namespaceUri = namespaceUri;
+            this.localName = localName;
+        }
+
+        private boolean matchesElement(Node node) {
+            return node.getNodeType() == Node.ELEMENT_NODE
+                    && localName.equals(node.getLocalName())
+                    && Objects.equals(namespaceUri, node.getNamespaceURI());
+        }
+
+        private String attributeValue(Element element) {
+            Attr attribute = element.getAttributeNodeNS(namespaceUri, localName);
+            return attribute != null ? attribute.getValue() : null;
+        }
+    }
+
+    private static final class Step {
+        private final QName name;
+        private final Condition[] conditions;
+
+        private Step(QName name, Condition[] conditions) {
+            this.name = name;
+            this.conditions = conditions;
+        }
+
+        private boolean matches(Node node) {
+            if (!name.matchesElement(node)) {
+                return false;
+            }
+            for (Condition condition : conditions) {
+                if (!condition.test((Element) node)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A single predicate term: some element reached through the child path (the
+     * element itself if the path is empty) has the attribute, or when there is no
+     * attribute the text content, equal to the value.
+     */
+    private static final class Condition {
+        private final QName[] children;
+        private final QName attribute;
+        private final String value;
+
+        private Condition(QName[] children, QName attribute, String value) {
+            this.children = children;
+            this.attribute = attribute;
+            this.value = value;
+        }
+
+        private boolean test(Element element) {
+            return test(element, 0);
+        }
+
+        private boolean test(Element element, int depth) {
+            if (depth == children.length) {
+                String actual = attribute != null ? attribute.attributeValue(element) : element.getTextContent();
+                return value.equals(actual);
+            }
+            for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (children[depth].matchesElement(node) && test((Element) node, depth + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class ListNodeList extends AbstractList<Node> implements NodeList {
+        private final List<Node> nodes;
+
+        private ListNodeList(List<Node> nodes) {
+            this.nodes = Collections.unmodifiableList(nodes);
+        }
+
+        @Override
+        public Node item(int index) {
+            return index >= 0 && index < nodes.size() ? nodes.get(index) : null;
+        }
+
+        @Override
+        public int getLength() {
+            return nodes.size();
+        }
+
+        @Override
+        public Node get(int index) {
+            return nodes.get(index);
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package it.polimi.gpplib.utils;
+
+import it.polimi.gpplib.model.GppDocument;
+import it.polimi.gpplib.model.GppCriterion;
+import it.polimi.gpplib.model.GppPatch;
+import it.polimi.gpplib.model.Notice;
+import it.polimi.gpplib.model.SuggestedGppCriterion;
+import it.polimi.gpplib.model.SuggestedGppPatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One loaded version of the domain knowledge (GPP documents, criteria and
+ * patches) together with everything derived from it: the CPV indexes, the
+ * relevance caches and the patch suggester (with its cache of rendered
+ * patches).
+ *
+ * <p>
+ * A snapshot never changes once built, so it can be shared by any number of
+ * threads. {@link GppDomainKnowledgeService} replaces it as a whole when the
+ * knowledge is reloaded; a request that needs consistent answers across several
+ * lookups should get the snapshot once with
+ * {@link GppDomainKnowledgeService#getSnapshot()} and use it throughout.
+ */
+public final class DomainKnowledgeSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainKnowledgeSnapshot.class);
+
+    private final List<GppDocument> gppDocs;
+    private final List<GppCriterion> gppCriteria;
+    private final List<GppPatch> gppPatches;
+
+    // CPV indexes of gppDocs and gppCriteria, built once at load time
+    private final CpvTrie<GppDocument> gppDocsIndex;
+    private final CpvTrie<GppCriterion> gppCriteriaIndex;
+
+    // results of getRelevantGppDocuments/getRelevantGppCriteria for this
+    // knowledge, null if caching is disabled
+    private final FrequencyCache<RelevanceKey, List<GppDocument>> relevantDocsCache;
+    private final FrequencyCache<RelevanceKey, List<GppCriterion>> relevantCriteriaCache;
+
+    private final GppPatchSuggester patchSuggester;
+
+    /**
+     * @throws IllegalArgumentException if the patch dependencies contain a cycle
+     */
+    DomainKnowledgeSnapshot(List<GppDocument> gppDocs, List<GppCriterion> gppCriteria, List<GppPatch> gppPatches,
+            int relevanceCacheSize) {
+        this(gppDocs, gppCriteria, GppPatchGraph.build(gppPatches), null, null, relevanceCacheSize);
+    }
+
+    /**
+     * Creates a snapshot from already built indexes of the given documents,
+     * criteria and patches, e.g. read from a {@link DomainKnowledgeSnapshotFile}.
+     * Null CPV indexes are built.
+     */
+    DomainKnowledgeSnapshot(List<GppDocument> gppDocs, List<GppCriterion> gppCriteria, GppPatchGraph gppPatchGraph,
+            CpvTrie<GppDocument> gppDocsIndex, CpvTrie<GppCriterion> gppCriteriaIndex, int relevanceCacheSize) {
+        this.gppDocs = Collections.unmodifiableList(new ArrayList<>(gppDocs));
+        this.gppCriteria = Collections.unmodifiableList(new ArrayList<>(gppCriteria));
+        this.gppPatches = gppPatchGraph.getPatches();
+
+        this.gppDocsIndex = gppDocsIndex != null ? gppDocsIndex
+                : CpvTrie.build(this.gppDocs, GppDocument::getRelevantCpvCodes);
+        this.gppCriteriaIndex = gppCriteriaIndex != null ? gppCriteriaIndex
+                : CpvTrie.build(this.gppCriteria, GppCriterion::getRelevantCpvCodes);
+
+        relevantDocsCache = relevanceCacheSize > 0 ? new FrequencyCache<>(relevanceCacheSize) : null;
+        relevantCriteriaCache = relevanceCacheSize > 0 ? new FrequencyCache<>(relevanceCacheSize) : null;
+
+        // the rendered patches are cached per criterion, bounded by the same size
+        patchSuggester = new GppPatchSuggester(this.gppCriteria, gppPatchGraph, relevanceCacheSize);
+    }
+
+    /**
+     * Loads the domain knowledge files and builds a snapshot from them.
+     *
+     * @throws IllegalArgumentException if one of the files cannot be loaded
+     */
+    static DomainKnowledgeSnapshot load(String gppDocsPath, String gppCriteriaPath, String gppPatchesPath,
+            int relevanceCacheSize) {
+        logger.info("Loading domain knowledge from paths: docs={}, criteria={}, patches={}",
+                gppDocsPath, gppCriteriaPath, gppPatchesPath);
+
+        List<GppDocument> gppDocs;
+        try {
+            GppDocumentsLoader docsLoader = new GppDocumentsLoader(gppDocsPath);
+            gppDocs = docsLoader.loadGppDocuments();
+            logger.info("Loaded {} GPP documents", gppDocs.size());
+        } catch (Exception e) {
+            logger.error("Failed to load GPP documents from path: {}", gppDocsPath, e);
+            throw new IllegalArgumentException("Invalid GPP documents file path: " + gppDocsPath, e);
+        }
+
+        List<GppCriterion> gppCriteria;
+        try {
+            GppCriteriaLoader criteriaLoader = new GppCriteriaLoader(gppCriteriaPath);
+            gppCriteria = criteriaLoader.loadGppCriteria();
+            logger.info("Loaded {} GPP criteria", gppCriteria.size());
+        } catch (Exception e) {
+            logger.error("Failed to load GPP criteria from path: {}", gppCriteriaPath, e);
+            throw new IllegalArgumentException("Invalid GPP criteria file path: " + gppCriteriaPath, e);
+        }
+
+        GppPatchGraph gppPatchGraph;
+        try {
+            GppPatchesLoader patchesLoader = new GppPatchesLoader(gppPatchesPath);
+            gppPatchGraph = patchesLoader.loadGppPatchGraph();
+            logger.info("Loaded {} GPP patches", gppPatchGraph.getPatches().size());
+        } catch (Exception e) {
+            logger.error("Failed to load GPP patches from path: {}", gppPatchesPath, e);
+            throw new IllegalArgumentException("Invalid GPP patches file path: " + gppPatchesPath, e);
+        }
+
+        return new DomainKnowledgeSnapshot(gppDocs, gppCriteria, gppPatchGraph, null, null, relevanceCacheSize);
+    }
+
+    public List<GppDocument> getGppDocuments() {
+        return gppDocs;
+    }
+
+    public List<GppCriterion> getGppCriteria() {
+        return gppCriteria;
+    }
+
+    public List<GppPatch> getGppPatches() {
+        return gppPatches;
+    }
+
+    CpvTrie<GppDocument> getGppDocumentsIndex() {
+        return gppDocsIndex;
+    }
+
+    CpvTrie<GppCriterion> getGppCriteriaIndex() {
+        return gppCriteriaIndex;
+    }
+
+    // TODO: eventually, the relevant documents should only come from the relevant
+    // GPP criteria (looking at the document names)
+    public List<GppDocument> getRelevantGppDocuments(List<String> cpvs) {
+        logger.debug("Finding relevant GPP documents for {} CPV codes", cpvs.size());
+        List<GppDocument> relevantGppDocs;
+        if (relevantDocsCache != null) {
+            relevantGppDocs = new ArrayList<>(relevantDocsCache.get(RelevanceKey.of(cpvs, null),
+                    key -> List.copyOf(gppDocsIndex.findMatching(key.cpvs))));
+        } else {
+            relevantGppDocs = new ArrayList<>(gppDocsIndex.findMatching(cpvs));
+        }
+        logger.debug("Found {} relevant GPP documents", relevantGppDocs.size());
+        return relevantGppDocs;
+    }
+
+    public List<GppCriterion> getRelevantGppCriteria(List<String> cpvs, String ambitionLevel) {
+        logger.debug("Finding relevant GPP criteria for {} CPV codes with ambition level: {}", cpvs.size(),
+                ambitionLevel);
+        List<GppCriterion> relevantGppCriteria;
+        if (relevantCriteriaCache != null) {
+            relevantGppCriteria = new ArrayList<>(relevantCriteriaCache.get(RelevanceKey.of(cpvs, ambitionLevel),
+                    key -> List.copyOf(findRelevantGppCriteria(key.cpvs, key.ambitionLevel))));
+        } else {
+            relevantGppCriteria = findRelevantGppCriteria(cpvs, ambitionLevel);
+        }
+        logger.debug("Found {} relevant GPP criteria", relevantGppCriteria.size());
+        return relevantGppCriteria;
+    }
+
+    /**
+     * Returns the hit/miss statistics of the cache of relevant documents and
+     * criteria, summed over both lookups. All zeros if the cache is disabled.
+     */
+    public CacheStats getRelevanceCacheStats() {
+        if (relevantDocsCache == null) {
+            return new CacheStats(0, 0);
+        }
+        CacheStats docs = relevantDocsCache.getStats();
+        CacheStats criteria = relevantCriteriaCache.getStats();
+        return new CacheStats(docs.getHitCount() + criteria.getHitCount(),
+                docs.getMissCount() + criteria.getMissCount());
+    }
+
+    /**
+     * Returns the hit/miss statistics of the cache of rendered criterion patches
+     * of the patch suggester. All zeros if the cache is disabled.
+     */
+    public CacheStats getRenderCacheStats() {
+        return patchSuggester.getRenderCacheStats();
+    }
+
+    private List<GppCriterion> findRelevantGppCriteria(List<String> cpvs, String ambitionLevel) {
+        List<GppCriterion> relevantGppCriteria = new ArrayList<>();
+        for (GppCriterion criterion : gppCriteriaIndex.findMatching(cpvs)) {
+            if (criterion.matchesAmbitionLevel(ambitionLevel)) {
+                relevantGppCriteria.add(criterion);
+            }
+        }
+        return relevantGppCriteria;
+    }
+
+    /**
+     * Converts a list of GppCriterion to SuggestedGppCriterion for a given lot.
+     * The matching CPVs are computed for each criterion.
+     */
+    public List<SuggestedGppCriterion> convertToSuggestedGppCriteria(List<GppCriterion> criteria, String lotId,
+            List<String> lotCpvs) {
+        logger.debug("Converting {} criteria to suggested criteria for lot: {}", criteria.size(), lotId);
+        List<SuggestedGppCriterion> suggested = new ArrayList<>();
+        for (GppCriterion criterion : criteria) {
+            SuggestedGppCriterion s = new SuggestedGppCriterion(
+                    criterion.getGppDocument(),
+                    criterion.getCategory(),
+                    criterion.getCriterionType(),
+                    criterion.getAmbitionLevel(),
+                    criterion.getId(),
+                    criterion.getName(),
+                    criterion.getRelevantCpvCodes(),
+                    Utils.matchingCpvs(lotCpvs, criterion.getRelevantCpvCodes(),
+                            criterion.getRelevantCpvPrefixes()),
+                    lotId);
+            suggested.add(s);
+        }
+        logger.debug("Created {} suggested criteria for lot: {}", suggested.size(), lotId);
+        return suggested;
+    }
+
+    public List<SuggestedGppPatch> suggestGppPatches(Notice notice, List<SuggestedGppCriterion> suggestedCriteria) {
+        logger.debug("Suggesting GPP patches for {} criteria", suggestedCriteria.size());
+        List<SuggestedGppPatch> patches = patchSuggester.suggestGppPatches(notice, suggestedCriteria);
+        logger.debug("Generated {} patch suggestions", patches.size());
+        return patches;
+    }
+
+    /**
+     * Cache key: the relevant documents and criteria only depend on the set of
+     * CPV codes, so they are sorted and deduplicated. The codes themselves are
+     * not trimmed, as trailing zeros matter on the notice side.
+     */
+    private static final class RelevanceKey {
+        private final List<String> cpvs;
+        private final String ambitionLevel;
+        private final int hash;
+
+        private RelevanceKey(List<String> cpvs, String ambitionLevel) {
+            this.cpvs = cpvs;
+            this.ambitionLevel = ambitionLevel;
+            this.hash = 31 * cpvs.hashCode() + Objects.hashCode(ambitionLevel);
+        }
+
+        private static RelevanceKey of(List<String> cpvs, String ambitionLevel) {
+            TreeSet<String> normalized = new TreeSet<>();
+            for (String cpv : cpvs) {
+                if (cpv != null) {
+                    normalized.add(cpv);
+                }
+            }
+            return new RelevanceKey(List.copyOf(normalized), ambitionLevel);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof RelevanceKey))
+                return false;
+            RelevanceKey that = (RelevanceKey) o;
+            return hash == that.hash && cpvs.equals(that.cpvs) && Objects.equals(ambitionLevel, that.ambitionLevel);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package it.polimi.gpplib.utils;
+
+import it.polimi.gpplib.model.GppCriterion;
+import it.polimi.gpplib.model.GppDocument;
+import it.polimi.gpplib.model.GppPatch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Precompiled binary form of a {@link DomainKnowledgeSnapshot}: the GPP
+ * documents, criteria and patches together with their CPV indexes, so that
+ * startup needs neither JSON parsing nor reflection-based binding nor index
+ * building.
+ *
+ * <p>
+ * The file is written at build time from the JSON domain knowledge (see
+ * {@link #main(String[])}) and is read through a memory mapping when it is on
+ * the filesystem. Layout, big-endian:
+ *
+ * <pre>
+ * "GPPK" format-version
+ * document-count   document*   (6 fields)
+ * criterion-count  criterion*  (11 fields)
+ * patch-count      patch*      (5 fields)
+ * documents-index  criteria-index
+ * </pre>
+ *
+ * Strings are stored as a byte length followed by UTF-8 bytes, with -1 for
+ * null; string lists as a count followed by the strings, with -1 for null.
+ */
+public final class DomainKnowledgeSnapshotFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainKnowledgeSnapshotFile.class);
+
+    static final byte[] MAGIC = { 'G', 'P', 'P', 'K' };
+    static final int FORMAT_VERSION = 1;
+
+    private DomainKnowledgeSnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot of the JSON domain knowledge to a binary file.
+     *
+     * <p>
+     * Usage: {@code DomainKnowledgeSnapshotFile <output.bin> <docs.json>
+     * <criteria.json> <patches.json>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            throw new IllegalArgumentException(
+                    "Usage: DomainKnowledgeSnapshotFile <output.bin> <docs.json> <criteria.json> <patches.json>");
+        }
+        DomainKnowledgeSnapshot snapshot = DomainKnowledgeSnapshot.load(args[1], args[2], args[3], 0);
+        Path output = Path.of(args[0]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        write(snapshot, output);
+        logger.info("Wrote domain knowledge snapshot to {} ({} bytes)", output, Files.size(output));
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it if it exists.
+     */
+    public static void write(DomainKnowledgeSnapshot snapshot, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(snapshot, out);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a stream. The stream is flushed but not closed.
+     */
+    public static void write(DomainKnowledgeSnapshot snapshot, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.write(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        out.writeInt(snapshot.getGppDocuments().size());
+        for (GppDocument doc : snapshot.getGppDocuments()) {
+            writeString(out, doc.getName());
+            writeString(out, doc.getSource());
+            writeString(out, doc.getDocumentReference());
+            writeString(out, doc.getPublicationDate() != null ? doc.getPublicationDate().toString() : null);
+            writeStrings(out, doc.getRelevantCpvCodes());
+            writeString(out, doc.getSummary());
+        }
+
+        out.writeInt(snapshot.getGppCriteria().size());
+        for (GppCriterion criterion : snapshot.getGppCriteria()) {
+            writeString(out, criterion.getGppDocument());
+            writeString(out, criterion.getGppSource());
+            writeString(out, criterion.getCategory());
+            writeString(out, criterion.getCriterionType());
+            writeString(out, criterion.getAmbitionLevel());
+            writeString(out, criterion.getId());
+            writeString(out, criterion.getName());
+            writeStrings(out, criterion.getRelevantCpvCodes());
+            writeString(out, criterion.getEnvironmentalImpactType());
+            writeString(out, criterion.getDescription());
+            writeString(out, criterion.getSelectionCriterionType());
+        }
+
+        out.writeInt(snapshot.getGppPatches().size());
+        for (GppPatch patch : snapshot.getGppPatches()) {
+            writeString(out, patch.getName());
+            writeStrings(out, patch.getBtIds());
+            writeString(out, patch.getDependsOn());
+            writeString(out, patch.getPathInLot());
+            writeString(out, patch.getValue());
+        }
+
+        snapshot.getGppDocumentsIndex().writeTo(out);
+        snapshot.getGppCriteriaIndex().writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot from the given path, looked up on the classpath first and
+     * then on the filesystem. Files are memory-mapped, other resources are read
+     * into memory.
+     *
+     * @param relevanceCacheSize see {@link GppDomainKnowledgeService}
+     * @throws IllegalArgumentException if the snapshot cannot be found or read
+     */
+    public static DomainKnowledgeSnapshot read(String path, int relevanceCacheSize) {
+        Path file = ResourceLocator.findFile(path);
+        if (file != null) {
+            return read(file, relevanceCacheSize);
+        }
+        byte[] bytes;
+        try (InputStream is = ResourceLocator.open(path)) {
+            if (is == null) {
+                throw new IllegalArgumentException("Invalid GPP knowledge snapshot path: " + path);
+            }
+            bytes = is.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid GPP knowledge snapshot path: " + path, e);
+        }
+        return read(ByteBuffer.wrap(bytes), path, relevanceCacheSize);
+    }
+
+    /**
+     * Reads a snapshot from a memory-mapped file.
+     *
+     * @param relevanceCacheSize see {@link GppDomainKnowledgeService}
+     * @throws IllegalArgumentException if the snapshot cannot be read
+     */
+    public static DomainKnowledgeSnapshot read(Path file, int relevanceCacheSize) {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | UnsupportedOperationException e) {
+            throw new IllegalArgumentException("Invalid GPP knowledge snapshot path: " + file, e);
+        }
+        return read(mapped, file.toString(), relevanceCacheSize);
+    }
+
+    /**
+     * Reads a snapshot from a buffer, starting at its position.
+     *
+     * @param relevanceCacheSize see {@link GppDomainKnowledgeService}
+     * @throws IllegalArgumentException if the data is not a valid snapshot
+     */
+    public static DomainKnowledgeSnapshot read(ByteBuffer buffer, int relevanceCacheSize) {
+        return read(buffer, "buffer", relevanceCacheSize);
+    }
+
+    private static DomainKnowledgeSnapshot read(ByteBuffer buffer, String source, int relevanceCacheSize) {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IllegalArgumentException("Not a GPP knowledge snapshot: " + source);
+            }
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException(
+                        "Unsupported GPP knowledge snapshot version " + version + ": " + source);
+            }
+
+            int docCount = readCount(in);
+            List<GppDocument> docs = new ArrayList<>(docCount);
+            for (int i = 0; i < docCount; i++) {
+                String name = readString(in);
+                String docSource = readString(in);
+                String reference = readString(in);
+                String publicationDate = readString(in);
+                docs.add(new GppDocument(name, docSource, reference,
+                        publicationDate != null ? LocalDateTime.parse(publicationDate) : null,
+                        readStrings(in), readString(in)));
+            }
+
+            int criterionCount = readCount(in);
+            List<GppCriterion> criteria = new ArrayList<>(criterionCount);
+            for (int i = 0; i < criterionCount; i++) {
+                GppCriterion criterion = new GppCriterion(readString(in), readString(in), readString(in),
+                        readString(in), readString(in), readString(in), readString(in), readStrings(in),
+                        readString(in), readString(in), readString(in));
+                // same as GppCriteriaLoader
+                criterion.getRelevantCpvPrefixes();
+                criteria.add(criterion);
+            }
+
+            int patchCount = readCount(in);
+            List<GppPatch> patches = new ArrayList<>(patchCount);
+            for (int i = 0; i < patchCount; i++) {
+                GppPatch patch = new GppPatch(readString(in), readStrings(in), readString(in), readString(in),
+                        readString(in));
+                // same as GppPatchesLoader
+                patch.getTemplate();
+                patches.add(patch);
+            }
+
+            CpvTrie<GppDocument> docsIndex = CpvTrie.readFrom(in, docs);
+            CpvTrie<GppCriterion> criteriaIndex = CpvTrie.readFrom(in, criteria);
+            logger.info("Read domain knowledge snapshot from {}: {} documents, {} criteria, {} patches", source,
+                    docs.size(), criteria.size(), patches.size());
+            return new DomainKnowledgeSnapshot(docs, criteria, GppPatchGraph.build(patches), docsIndex, criteriaIndex,
+                    relevanceCacheSize);
+        } catch (BufferUnderflowException | DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid GPP knowledge snapshot: " + source, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getInt();
+        if (count == -1) {
+            return null;
+        }
+        if (count < 0 || count > in.remaining() / Integer.BYTES) {
+            throw new IllegalArgumentException("Invalid list size: " + count);
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static int readCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Invalid item count: " + count);
+        }
+        return count;
+    }
+}
@@ -1,6 +1,9 @@
 package it.polimi.gpplib.utils;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.w3c.dom.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +25,9 @@ public class EFormsSdkWrapper {
 
     private final List<String> procurementProjectTypeSchema;
 
+    // position of each expanded element name in procurementProjectTypeSchema
+    private final Map<String, Integer> procurementProjectTypeOrdinals;
+
     /**
      * Constructor that uses the default eForms SDK path from Constants.
      * Loads the UBL Common Aggregate Components XSD file and extracts the
@@ -48,6 +54,7 @@ public class EFormsSdkWrapper {
         String xsdFilePath = buildXsdPathFromVersion(version);
         logger.debug("Using XSD file path: {}", xsdFilePath);
         this.procurementProjectTypeSchema = loadProcurementProjectTypeSchema(xsdFilePath);
+        this.procurementProjectTypeOrdinals = buildOrdinals(this.procurementProjectTypeSchema);
         logger.info("EFormsSdkWrapper initialized successfully with {} schema elements",
                 this.procurementProjectTypeSchema.size());
     }
@@ -67,6 +74,7 @@ public class EFormsSdkWrapper {
     public EFormsSdkWrapper(String xsdFilePath, boolean isFilePath) {
         logger.debug("Initializing EFormsSdkWrapper with XSD file: {}", xsdFilePath);
         this.procurementProjectTypeSchema = loadProcurementProjectTypeSchema(xsdFilePath);
+        this.procurementProjectTypeOrdinals = buildOrdinals(this.procurementProjectTypeSchema);
         logger.info("EFormsSdkWrapper initialized successfully with {} schema elements",
                 this.procurementProjectTypeSchema.size());
     }
@@ -78,12 +86,33 @@ public class EFormsSdkWrapper {
      * that was loaded during construction.
      * 
      * @return List of ref attribute values from the ProcurementProjectType sequence
-     *         elements
+     *         elements (unmodifiable, the wrapper may be shared)
      */
     public List<String> getProcurementProjectTypeSchema() {
         return this.procurementProjectTypeSchema;
     }
 
+    /**
+     * Gets the position of each ProcurementProjectType schema element in the
+     * sequence, by {@link XmlUtils#getExpandedName(String) expanded name} so that
+     * it does not depend on the prefixes used by a notice (e.g. "cbc:ID" is found
+     * under "{urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2}ID").
+     * If a name appears more than once, its first position is used.
+     * 
+     * @return Map from expanded element name to position (unmodifiable)
+     */
+    public Map<String, Integer> getProcurementProjectTypeOrdinals() {
+        return this.procurementProjectTypeOrdinals;
+    }
+
+    private static Map<String, Integer> buildOrdinals(List<String> schema) {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < schema.size(); i++) {
+            ordinals.putIfAbsent(XmlUtils.getExpandedName(schema.get(i)), i);
+        }
+        return Collections.unmodifiableMap(ordinals);
+    }
+
     /**
      * Helper method to build the XSD file path from an eForms SDK version.
      * Uses the template from Constants to create the path with the specified
@@ -123,7 +152,7 @@ public class EFormsSdkWrapper {
                 logger.debug("ProcurementProjectType ref elements: {}", refElements);
             }
 
-            return refElements;
+            return Collections.unmodifiableList(refElements);
 
         } catch (Exception e) {
             logger.error("Failed to load ProcurementProjectType schema from: {}", xsdFilePath, e);
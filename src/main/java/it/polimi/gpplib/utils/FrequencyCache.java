@@ -0,0 +1,126 @@
+package it.polimi.gpplib.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache that keeps the most frequently used entries.
+ *
+ * <p>
+ * Entries are kept in access order. When the cache is full, the least recently
+ * used entries are sampled and the one with the fewest hits is evicted, so a
+ * burst of one-off keys does not push out the keys that make up most of the
+ * traffic. Hit counts are halved periodically so that keys that stop being
+ * used eventually become evictable.
+ *
+ * <p>
+ * All methods are thread-safe. Values are computed outside of the lock, so two
+ * threads missing on the same key may both compute it.
+ */
+final class FrequencyCache<K, V> {
+
+    /** Number of least recently used entries considered for each eviction. */
+    static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final int maxEntries;
+    private final int agingPeriod;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private int operationsSinceAging;
+
+    /**
+     * @param maxEntries the maximum number of entries, must be positive
+     */
+    FrequencyCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.agingPeriod = Math.max(64, maxEntries * 10);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached value for the key, computing and caching it if missing.
+     *
+     * @param key    the key, must not be null
+     * @param loader computes the value, must not return null
+     */
+    V get(K key, Function<K, V> loader) {
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            age();
+            if (entry != null) {
+                hits++;
+                if (entry.frequency < Integer.MAX_VALUE) {
+                    entry.frequency++;
+                }
+                return entry.value;
+            }
+            misses++;
+        }
+        V value = loader.apply(key);
+        synchronized (this) {
+            if (!entries.containsKey(key)) {
+                if (entries.size() >= maxEntries) {
+                    evict();
+                }
+                entries.put(key, new Entry<>(value));
+            }
+        }
+        return value;
+    }
+
+    synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries. The statistics are kept.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        K victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE && it.hasNext(); i++) {
+            Map.Entry<K, Entry<V>> candidate = it.next();
+            // strictly lower, so ties go to the least recently used entry
+            if (candidate.getValue().frequency < victimFrequency) {
+                victim = candidate.getKey();
+                victimFrequency = candidate.getValue().frequency;
+            }
+        }
+        entries.remove(victim);
+    }
+
+    private void age() {
+        if (++operationsSinceAging < agingPeriod) {
+            return;
+        }
+        operationsSinceAging = 0;
+        for (Entry<V> entry : entries.values()) {
+            entry.frequency >>= 1;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private int frequency;
+
+        private Entry(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -27,19 +27,24 @@ public class GppCriteriaLoader {
     }
 
     /**
-     * Loads a list of GppCriterion objects from the specified JSON resource file.
+     * Loads a list of GppCriterion objects from the specified JSON resource file,
+     * or from the filesystem if there is no such resource.
+     * The relevant CPV prefixes of each criterion are computed while loading.
      *
      * @return A List of GppCriterion objects.
      * @throws IOException if the resource is not found or there's an error during
      *                     JSON parsing.
      */
     public List<GppCriterion> loadGppCriteria() throws IOException {
-        try (InputStream is = getClass().getClassLoader()
-                .getResourceAsStream(filePath)) {
+        try (InputStream is = ResourceLocator.open(filePath)) {
             Objects.requireNonNull(is,
-                    "Resource not found on classpath: " + filePath);
-            return objectMapper.readValue(is, new TypeReference<List<GppCriterion>>() {
+                    "Resource not found on classpath or filesystem: " + filePath);
+            List<GppCriterion> criteria = objectMapper.readValue(is, new TypeReference<List<GppCriterion>>() {
             });
+            for (GppCriterion criterion : criteria) {
+                criterion.getRelevantCpvPrefixes();
+            }
+            return criteria;
         }
     }
 }
@@ -36,7 +36,9 @@ public class GppDocumentsLoader {
     }
 
     /**
-     * Loads a list of GppDocument objects from the specified JSON resource file.
+     * Loads a list of GppDocument objects from the specified JSON resource file,
+     * or from the filesystem if there is no such resource.
+     * The relevant CPV prefixes of each document are computed while loading.
      *
      * @return A List of GppDocument objects.
      * @throws IOException if the resource is not found or there's an error during
@@ -45,18 +47,20 @@ public class GppDocumentsLoader {
     public List<GppDocument> loadGppDocuments() throws IOException {
         logger.debug("Loading GPP documents from resource: {}", filePath);
 
-        // Get the InputStream for the resource file from the classpath
-        // The path is relative to the classpath root (src/main/resources/)
-        try (InputStream is = getClass().getClassLoader()
-                .getResourceAsStream(filePath)) {
-            // Ensure the resource was found; getResourceAsStream returns null if not
-            Objects.requireNonNull(is, "Resource not found on classpath: " + filePath);
+        // Get the InputStream for the resource file from the classpath, or else the filesystem
+        // The classpath path is relative to the classpath root (src/main/resources/)
+        try (InputStream is = ResourceLocator.open(filePath)) {
+            // Ensure the resource was found; open returns null if not
+            Objects.requireNonNull(is, "Resource not found on classpath or filesystem: " + filePath);
 
             // Read the JSON array into a List of GppDocument objects
             // TypeReference is used here because of Java's type erasure;
             // it tells Jackson to deserialize into a List<GppDocument> not just a raw List.
             List<GppDocument> documents = objectMapper.readValue(is, new TypeReference<List<GppDocument>>() {
             });
+            for (GppDocument document : documents) {
+                document.getRelevantCpvPrefixes();
+            }
 
             logger.debug("Successfully loaded {} GPP documents from {}", documents.size(), filePath);
             return documents;
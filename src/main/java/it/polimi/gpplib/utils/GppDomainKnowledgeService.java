@@ -2,85 +2,266 @@ package it.polimi.gpplib.utils;
 
 import it.polimi.gpplib.model.GppDocument;
 import it.polimi.gpplib.model.GppCriterion;
-import it.polimi.gpplib.model.GppPatch;
 import it.polimi.gpplib.model.Notice;
 import it.polimi.gpplib.model.SuggestedGppCriterion;
 import it.polimi.gpplib.model.SuggestedGppPatch;
 
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class GppDomainKnowledgeService {
+/**
+ * Entry point to the domain knowledge (GPP documents, criteria and patches).
+ *
+ * <p>
+ * The loaded knowledge is held in an immutable {@link DomainKnowledgeSnapshot}.
+ * {@link #reload()} and {@link #reloadAsync()} build a new snapshot from the same
+ * paths, indexes included, and publish it with a single atomic swap: lookups
+ * never wait for a reload, and lookups already running keep using the snapshot
+ * they started with. If a reload fails, the current snapshot is kept.
+ * {@link #startWatching()} reloads automatically when the files change on the
+ * filesystem.
+ *
+ * <p>
+ * If a binary snapshot path is given and the snapshot exists, the knowledge is
+ * read from it (see {@link DomainKnowledgeSnapshotFile}) instead of from the
+ * JSON files; the JSON files are the fallback if it is missing or unreadable.
+ */
+public class GppDomainKnowledgeService implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(GppDomainKnowledgeService.class);
 
-    private List<GppDocument> gppDocs = new java.util.ArrayList<>();
-    private List<GppCriterion> gppCriteria = new java.util.ArrayList<>();
-    private List<GppPatch> gppPatches = new java.util.ArrayList<>();
+    /** Default number of CPV sets whose relevant documents and criteria are cached. */
+    public static final int DEFAULT_RELEVANCE_CACHE_SIZE = 1024;
 
-    private final GppPatchSuggester patchSuggester;
+    /** How long the watcher waits for more file events before reloading. */
+    static final long WATCH_DEBOUNCE_MILLIS = 200;
+
+    private final String snapshotPath;
+    private final String gppDocsPath;
+    private final String gppCriteriaPath;
+    private final String gppPatchesPath;
+    private final int relevanceCacheSize;
+
+    private final AtomicReference<DomainKnowledgeSnapshot> snapshot = new AtomicReference<>();
+
+    // loads are numbered in the order they start; a load is published only if no
+    // later load has been published already, so that a slow load can't replace
+    // the knowledge of a newer one. publishedGeneration is guarded by snapshot
+    private final AtomicLong loadGeneration = new AtomicLong();
+    private long publishedGeneration;
+
+    // background threads, created on first use and guarded by this
+    private ExecutorService reloadExecutor;
+    private WatchService watchService;
+    private Thread watchThread;
 
     public GppDomainKnowledgeService(String gppDocsPath, String gppCriteriaPath, String gppPatchesPath) {
-        logger.info("Loading domain knowledge from paths: docs={}, criteria={}, patches={}",
-                gppDocsPath, gppCriteriaPath, gppPatchesPath);
+        this(gppDocsPath, gppCriteriaPath, gppPatchesPath, DEFAULT_RELEVANCE_CACHE_SIZE);
+    }
 
-        try {
-            GppDocumentsLoader docsLoader = new GppDocumentsLoader(gppDocsPath);
-            gppDocs = docsLoader.loadGppDocuments();
-            logger.info("Loaded {} GPP documents", gppDocs.size());
-        } catch (Exception e) {
-            logger.error("Failed to load GPP documents from path: {}", gppDocsPath, e);
-            throw new IllegalArgumentException("Invalid GPP documents file path: " + gppDocsPath, e);
+    /**
+     * Loads the domain knowledge, caching the relevant documents and criteria of
+     * up to relevanceCacheSize distinct CPV sets.
+     *
+     * <p>
+     * Each path is looked up on the classpath first, then on the filesystem.
+     *
+     * @param relevanceCacheSize the maximum number of cached CPV sets (and of
+     *                           criteria with cached rendered patches), 0 to
+     *                           disable the caches
+     */
+    public GppDomainKnowledgeService(String gppDocsPath, String gppCriteriaPath, String gppPatchesPath,
+            int relevanceCacheSize) {
+        this(null, gppDocsPath, gppCriteriaPath, gppPatchesPath, relevanceCacheSize);
+    }
+
+    /**
+     * Loads the domain knowledge from the binary snapshot if it exists, from the
+     * JSON files otherwise.
+     *
+     * @param snapshotPath       the binary snapshot, null to always use the JSON
+     *                           files
+     * @param relevanceCacheSize the maximum number of cached CPV sets (and of
+     *                           criteria with cached rendered patches), 0 to
+     *                           disable the caches
+     */
+    public GppDomainKnowledgeService(String snapshotPath, String gppDocsPath, String gppCriteriaPath,
+            String gppPatchesPath, int relevanceCacheSize) {
+        if (relevanceCacheSize < 0) {
+            throw new IllegalArgumentException("Relevance cache size must not be negative: " + relevanceCacheSize);
         }
+        this.snapshotPath = snapshotPath;
+        this.gppDocsPath = gppDocsPath;
+        this.gppCriteriaPath = gppCriteriaPath;
+        this.gppPatchesPath = gppPatchesPath;
+        this.relevanceCacheSize = relevanceCacheSize;
+        snapshot.set(loadSnapshot());
+        publishedGeneration = loadGeneration.incrementAndGet();
+        logger.debug("GppDomainKnowledgeService initialization completed successfully");
+    }
 
-        try {
-            GppCriteriaLoader criteriaLoader = new GppCriteriaLoader(gppCriteriaPath);
-            gppCriteria = criteriaLoader.loadGppCriteria();
-            logger.info("Loaded {} GPP criteria", gppCriteria.size());
-        } catch (Exception e) {
-            logger.error("Failed to load GPP criteria from path: {}", gppCriteriaPath, e);
-            throw new IllegalArgumentException("Invalid GPP criteria file path: " + gppCriteriaPath, e);
+    /**
+     * Returns the current snapshot of the domain knowledge.
+     */
+    public DomainKnowledgeSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Loads the domain knowledge again on the calling thread and publishes it.
+     * Reloads on different threads may overlap: if a reload that started later
+     * has already published its snapshot, this one is discarded.
+     *
+     * @return the new snapshot, or the newer one that was published instead
+     * @throws IllegalArgumentException if one of the files cannot be loaded, in
+     *                                  which case the current snapshot is kept
+     */
+    public DomainKnowledgeSnapshot reload() {
+        long generation = loadGeneration.incrementAndGet();
+        DomainKnowledgeSnapshot next = loadSnapshot();
+        synchronized (snapshot) {
+            if (generation < publishedGeneration) {
+                logger.info("Discarded domain knowledge snapshot superseded by a newer reload");
+                return snapshot.get();
+            }
+            publishedGeneration = generation;
+            snapshot.set(next);
         }
+        logger.info("Published new domain knowledge snapshot: {} documents, {} criteria, {} patches",
+                next.getGppDocuments().size(), next.getGppCriteria().size(), next.getGppPatches().size());
+        return next;
+    }
 
+    /**
+     * Loads the domain knowledge again on a background thread and publishes it.
+     * The reloads of this method are run one at a time.
+     *
+     * @return a future completed with the new snapshot, or exceptionally if the
+     *         reload failed (the current snapshot is then kept)
+     */
+    public CompletableFuture<DomainKnowledgeSnapshot> reloadAsync() {
+        return CompletableFuture.supplyAsync(this::reload, getReloadExecutor());
+    }
+
+    /**
+     * Starts watching the domain knowledge files and reloads them in the
+     * background when one of them is created or modified. Only files on the
+     * filesystem can be watched, resources inside a jar are ignored. Does nothing
+     * if already watching.
+     *
+     * @throws IllegalStateException if none of the files is on the filesystem or
+     *                               the watch service cannot be started
+     */
+    public synchronized void startWatching() {
+        if (watchThread != null) {
+            return;
+        }
+        Set<Path> files = new HashSet<>();
+        for (String path : getSourcePaths()) {
+            Path file = ResourceLocator.findFile(path);
+            if (file != null) {
+                files.add(file);
+            } else {
+                logger.warn("Domain knowledge file is not on the filesystem and won't be watched: {}", path);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalStateException("None of the domain knowledge files is on the filesystem");
+        }
         try {
-            GppPatchesLoader patchesLoader = new GppPatchesLoader(gppPatchesPath);
-            gppPatches = patchesLoader.loadGppPatches();
-            logger.info("Loaded {} GPP patches", gppPatches.size());
-        } catch (Exception e) {
-            logger.error("Failed to load GPP patches from path: {}", gppPatchesPath, e);
-            throw new IllegalArgumentException("Invalid GPP patches file path: " + gppPatchesPath, e);
+            watchService = FileSystems.getDefault().newWatchService();
+            Set<Path> directories = new HashSet<>();
+            for (Path file : files) {
+                if (directories.add(file.getParent())) {
+                    file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+        } catch (IOException e) {
+            closeWatchService();
+            throw new IllegalStateException("Failed to watch the domain knowledge files", e);
         }
+        WatchService service = watchService;
+        watchThread = new Thread(() -> watch(service, files), "gpp-knowledge-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching domain knowledge files: {}", files);
+    }
 
-        patchSuggester = new GppPatchSuggester(gppCriteria, gppPatches);
-        logger.debug("GppDomainKnowledgeService initialization completed successfully");
+    /**
+     * Stops watching the domain knowledge files. Does nothing if not watching.
+     */
+    public synchronized void stopWatching() {
+        if (watchThread == null) {
+            return;
+        }
+        closeWatchService();
+        watchThread.interrupt();
+        watchThread = null;
+        logger.info("Stopped watching domain knowledge files");
     }
 
-    // TODO: eventually, the relevant documents should only come from the relevant
-    // GPP criteria (looking at the document names)
-    public List<GppDocument> getRelevantGppDocuments(List<String> cpvs) {
-        logger.debug("Finding relevant GPP documents for {} CPV codes", cpvs.size());
-        List<GppDocument> relevantGppDocs = new java.util.ArrayList<>();
-        for (GppDocument doc : gppDocs) {
-            if (doc.isApplicable(cpvs)) {
-                relevantGppDocs.add(doc);
-            }
+    public synchronized boolean isWatching() {
+        return watchThread != null;
+    }
+
+    /**
+     * Stops the watcher and the background reload thread. The current snapshot
+     * can still be used.
+     */
+    @Override
+    public synchronized void close() {
+        stopWatching();
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdown();
+            reloadExecutor = null;
         }
-        logger.debug("Found {} relevant GPP documents", relevantGppDocs.size());
-        return relevantGppDocs;
+    }
+
+    public List<GppDocument> getRelevantGppDocuments(List<String> cpvs) {
+        return snapshot.get().getRelevantGppDocuments(cpvs);
     }
 
     public List<GppCriterion> getRelevantGppCriteria(List<String> cpvs, String ambitionLevel) {
-        logger.debug("Finding relevant GPP criteria for {} CPV codes with ambition level: {}", cpvs.size(),
-                ambitionLevel);
-        List<GppCriterion> relevantGppCriteria = new java.util.ArrayList<>();
-        for (GppCriterion criterion : gppCriteria) {
-            if (criterion.isApplicable(cpvs, ambitionLevel)) {
-                relevantGppCriteria.add(criterion);
-            }
-        }
-        logger.debug("Found {} relevant GPP criteria", relevantGppCriteria.size());
-        return relevantGppCriteria;
+        return snapshot.get().getRelevantGppCriteria(cpvs, ambitionLevel);
+    }
+
+    /**
+     * Returns the hit/miss statistics of the cache of relevant documents and
+     * criteria of the current snapshot, summed over both lookups. All zeros if
+     * the cache is disabled. A reload starts with an empty cache.
+     */
+    public CacheStats getRelevanceCacheStats() {
+        return snapshot.get().getRelevanceCacheStats();
+    }
+
+    /**
+     * Returns the hit/miss statistics of the cache of rendered criterion patches
+     * of the current snapshot. All zeros if the cache is disabled. A reload
+     * starts with an empty cache.
+     */
+    public CacheStats getRenderCacheStats() {
+        return snapshot.get().getRenderCacheStats();
     }
 
     /**
@@ -89,29 +270,117 @@ public class GppDomainKnowledgeService {
      */
     public List<SuggestedGppCriterion> convertToSuggestedGppCriteria(List<GppCriterion> criteria, String lotId,
             List<String> lotCpvs) {
-        logger.debug("Converting {} criteria to suggested criteria for lot: {}", criteria.size(), lotId);
-        List<SuggestedGppCriterion> suggested = new java.util.ArrayList<>();
-        for (GppCriterion criterion : criteria) {
-            SuggestedGppCriterion s = new SuggestedGppCriterion(
-                    criterion.getGppDocument(),
-                    criterion.getCategory(),
-                    criterion.getCriterionType(),
-                    criterion.getAmbitionLevel(),
-                    criterion.getId(),
-                    criterion.getName(),
-                    criterion.getRelevantCpvCodes(),
-                    Utils.matchingCpvs(lotCpvs, criterion.getRelevantCpvCodes()),
-                    lotId);
-            suggested.add(s);
-        }
-        logger.debug("Created {} suggested criteria for lot: {}", suggested.size(), lotId);
-        return suggested;
+        return snapshot.get().convertToSuggestedGppCriteria(criteria, lotId, lotCpvs);
     }
 
     public List<SuggestedGppPatch> suggestGppPatches(Notice notice, List<SuggestedGppCriterion> suggestedCriteria) {
-        logger.debug("Suggesting GPP patches for {} criteria", suggestedCriteria.size());
-        List<SuggestedGppPatch> patches = patchSuggester.suggestGppPatches(notice, suggestedCriteria);
-        logger.debug("Generated {} patch suggestions", patches.size());
-        return patches;
+        return snapshot.get().suggestGppPatches(notice, suggestedCriteria);
+    }
+
+    // package-private for tests
+    DomainKnowledgeSnapshot loadSnapshot() {
+        if (snapshotPath != null && ResourceLocator.exists(snapshotPath) && !isSnapshotOutdated()) {
+            try {
+                return DomainKnowledgeSnapshotFile.read(snapshotPath, relevanceCacheSize);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Failed to read domain knowledge snapshot {}, falling back to JSON", snapshotPath, e);
+            }
+        }
+        return DomainKnowledgeSnapshot.load(gppDocsPath, gppCriteriaPath, gppPatchesPath, relevanceCacheSize);
+    }
+
+    /**
+     * Returns true if the snapshot and the JSON files are on the filesystem and
+     * one of the JSON files was modified after the snapshot, e.g. a new export
+     * that has not been compiled yet.
+     */
+    private boolean isSnapshotOutdated() {
+        Path snapshotFile = ResourceLocator.findFile(snapshotPath);
+        if (snapshotFile == null) {
+            return false;
+        }
+        try {
+            FileTime snapshotTime = Files.getLastModifiedTime(snapshotFile);
+            for (String path : List.of(gppDocsPath, gppCriteriaPath, gppPatchesPath)) {
+                Path jsonFile = ResourceLocator.findFile(path);
+                if (jsonFile != null && Files.getLastModifiedTime(jsonFile).compareTo(snapshotTime) > 0) {
+                    logger.info("Domain knowledge snapshot {} is older than {}, using the JSON files", snapshotPath,
+                            path);
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to compare domain knowledge file times", e);
+        }
+        return false;
+    }
+
+    private List<String> getSourcePaths() {
+        List<String> paths = new ArrayList<>(List.of(gppDocsPath, gppCriteriaPath, gppPatchesPath));
+        if (snapshotPath != null && ResourceLocator.findFile(snapshotPath) != null) {
+            paths.add(snapshotPath);
+        }
+        return paths;
+    }
+
+    private synchronized ExecutorService getReloadExecutor() {
+        if (reloadExecutor == null) {
+            reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "gpp-knowledge-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return reloadExecutor;
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close watch service", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void watch(WatchService service, Set<Path> files) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = pollChanges(key, files);
+                if (!changed) {
+                    continue;
+                }
+                // an export usually rewrites several files, wait for it to settle
+                while ((key = service.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    pollChanges(key, files);
+                }
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    logger.error("Failed to reload domain knowledge, keeping the current snapshot", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private static boolean pollChanges(WatchKey key, Set<Path> files) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            } else if (files.contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
     }
 }
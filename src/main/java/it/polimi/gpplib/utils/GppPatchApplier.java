@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -36,90 +38,175 @@ public class GppPatchApplier {
             throw new IllegalArgumentException("Notice and patch must not be null");
         }
 
-        logger.debug("Applying patch '{}' to lot '{}' at path '{}'", patch.getName(), patch.getLotId(),
-                patch.getPath());
+        Node lot = resolveLot(notice, patch);
+        applyToLot(patch, lot, new PatchBatch());
+        notice.markModified();
+        return notice;
+    }
 
-        // Validate operation
-        if (patch.getOp() == null) {
-            logger.error("Patch operation is null");
-            throw new IllegalArgumentException("Patch operation cannot be null");
+    /**
+     * Applies several patches to a notice at once. This gives the same result as
+     * applying them one by one with {@link #applyPatch(Notice, SuggestedGppPatch)},
+     * but the patches are grouped by lot: each lot is looked up once, each
+     * insertion point is resolved once per lot and each distinct value is parsed
+     * once.
+     * 
+     * <p>
+     * Within a lot, the patches are applied in their order, except that a patch
+     * is moved after the patch it depends on (see
+     * {@link SuggestedGppPatch#getDependsOn()}) if that one comes later. Null
+     * patches are skipped. All the patches are validated before any of them is
+     * applied.
+     * 
+     * @param notice  the notice to modify
+     * @param patches the patches to apply
+     * @return the modified notice
+     * @throws IllegalArgumentException if a patch is invalid or cannot be applied
+     */
+    public Notice applyPatches(Notice notice, List<SuggestedGppPatch> patches) {
+        if (notice == null || patches == null) {
+            logger.error("Notice and patches must not be null");
+            throw new IllegalArgumentException("Notice and patches must not be null");
+        }
+
+        // lot nodes in order of first use, with their patches
+        Map<Node, List<SuggestedGppPatch>> patchesPerLot = new LinkedHashMap<>();
+        Map<String, Node> lotsById = new HashMap<>();
+        for (SuggestedGppPatch patch : patches) {
+            if (patch == null) {
+                logger.debug("Skipping null patch");
+                continue;
+            }
+            Node lot = lotsById.get(patch.getLotId());
+            if (lot == null) {
+                lot = resolveLot(notice, patch);
+                lotsById.put(patch.getLotId(), lot);
+            } else {
+                validateOperation(patch);
+            }
+            patchesPerLot.computeIfAbsent(lot, k -> new ArrayList<>()).add(patch);
         }
 
+        PatchBatch batch = new PatchBatch();
+        for (Map.Entry<Node, List<SuggestedGppPatch>> entry : patchesPerLot.entrySet()) {
+            for (SuggestedGppPatch patch : inDependencyOrder(entry.getValue())) {
+                applyToLot(patch, entry.getKey(), batch);
+            }
+        }
+        if (!patchesPerLot.isEmpty()) {
+            notice.markModified();
+        }
+        return notice;
+    }
+
+    /**
+     * Validates the operation of the patch and returns its lot.
+     */
+    private Node resolveLot(Notice notice, SuggestedGppPatch patch) {
+        validateOperation(patch);
+
         // Get the lot node
         Node lot = notice.getLotNode(patch.getLotId());
         if (lot == null) {
             logger.error("Lot not found for id: {}", patch.getLotId());
             throw new IllegalArgumentException("Lot not found for id: " + patch.getLotId());
         }
+        return lot;
+    }
+
+    private void validateOperation(SuggestedGppPatch patch) {
+        if (patch.getOp() == null) {
+            logger.error("Patch operation is null");
+            throw new IllegalArgumentException("Patch operation cannot be null");
+        }
+        if (!patch.getOp().equalsIgnoreCase(Constants.OP_CREATE)
+                && !patch.getOp().equalsIgnoreCase(Constants.OP_REMOVE)
+                && !patch.getOp().equalsIgnoreCase(Constants.OP_UPDATE)) {
+            logger.error("Unsupported patch operation: {}", patch.getOp());
+            throw new IllegalArgumentException("Unsupported patch operation: " + patch.getOp());
+        }
+    }
+
+    private void applyToLot(SuggestedGppPatch patch, Node lot, PatchBatch batch) {
+        logger.debug("Applying patch '{}' to lot '{}' at path '{}'", patch.getName(), patch.getLotId(),
+                patch.getPath());
 
         // Handle different operations
         if (patch.getOp().equalsIgnoreCase(Constants.OP_CREATE)) {
-            handleCreateOperation(patch, lot);
+            handleCreateOperation(patch, lot, batch);
         } else if (patch.getOp().equalsIgnoreCase(Constants.OP_REMOVE)) {
             handleRemoveOperation(patch, lot);
-        } else if (patch.getOp().equalsIgnoreCase(Constants.OP_UPDATE)) {
-            handleUpdateOperation(patch, lot);
+            batch.invalidate(lot);
         } else {
-            logger.error("Unsupported patch operation: {}", patch.getOp());
-            throw new IllegalArgumentException("Unsupported patch operation: " + patch.getOp());
+            handleUpdateOperation(patch, lot, batch);
+            batch.invalidate(lot);
         }
 
         logger.debug("Successfully applied patch '{}' to lot '{}'", patch.getName(), patch.getLotId());
-        return notice;
+    }
+
+    /**
+     * Returns the patches of a lot in their order, except that a patch comes
+     * after the patch named by its dependsOn if both are in the list.
+     */
+    private static List<SuggestedGppPatch> inDependencyOrder(List<SuggestedGppPatch> patches) {
+        Map<String, Integer> indexByName = new HashMap<>();
+        for (int i = 0; i < patches.size(); i++) {
+            if (patches.get(i).getName() != null) {
+                indexByName.putIfAbsent(patches.get(i).getName(), i);
+            }
+        }
+        List<SuggestedGppPatch> ordered = new ArrayList<>(patches.size());
+        // 0: not visited, 1: being visited, 2: done
+        byte[] states = new byte[patches.size()];
+        for (int i = 0; i < patches.size(); i++) {
+            visitInDependencyOrder(i, patches, indexByName, states, ordered);
+        }
+        return ordered;
+    }
+
+    private static void visitInDependencyOrder(int index, List<SuggestedGppPatch> patches,
+            Map<String, Integer> indexByName, byte[] states, List<SuggestedGppPatch> ordered) {
+        if (states[index] != 0) {
+            // done, or a dependency cycle, in which case the list order is kept
+            return;
+        }
+        states[index] = 1;
+        String dependsOn = patches.get(index).getDependsOn();
+        Integer parent = dependsOn != null ? indexByName.get(dependsOn) : null;
+        if (parent != null) {
+            visitInDependencyOrder(parent, patches, indexByName, states, ordered);
+        }
+        states[index] = 2;
+        ordered.add(patches.get(index));
     }
 
     /**
      * Handles create operations by inserting new nodes into the lot.
      */
-    private void handleCreateOperation(SuggestedGppPatch patch, Node lot) {
+    private void handleCreateOperation(SuggestedGppPatch patch, Node lot, PatchBatch batch) {
         logger.debug("Handling create operation for patch '{}'", patch.getName());
 
-        Node insertionNode = XmlUtils.getNodeAtPath(lot, patch.getPath());
+        Node insertionNode = batch.getInsertionNode(lot, patch.getPath());
         if (insertionNode == null) {
             logger.error("Invalid patch path '{}' for lot '{}'", patch.getPath(), patch.getLotId());
             throw new IllegalArgumentException("Invalid patch path: " + patch.getPath());
         }
 
-        Document valueDoc;
-        try {
-            valueDoc = XmlUtils.loadDocument(patch.getValue());
-        } catch (Exception e) {
-            logger.error("Failed to parse patch value as XML: {}", patch.getValue(), e);
-            throw new IllegalArgumentException("Invalid patch value: " + patch.getValue(), e);
-        }
-        if (valueDoc == null) {
-            logger.error("Patch value resulted in null document: {}", patch.getValue());
-            throw new IllegalArgumentException("Invalid patch value: " + patch.getValue());
-        }
+        // already a copy owned by the notice, so it is inserted as is
+        Node valueNode = batch.importValue(patch, lot.getOwnerDocument());
 
         // TODO: if more complex patches are needed, we can extend this logic to cover
         // other paths / parents
         if (patch.getPath().equals(Constants.PATH_PROCUREMENT_PROJECT)) {
-            // Extract the root element name from the patch value
-            String patchElementName = valueDoc.getDocumentElement().getNodeName();
-            logger.debug("Patch element name: {}", patchElementName);
-
-            // Get the full schema list
-            List<String> fullSchema = eFormsSdkWrapper.getProcurementProjectTypeSchema();
-
-            // Find the index of our patch element in the schema
-            int patchElementIndex = fullSchema.indexOf(patchElementName);
-
-            if (patchElementIndex >= 0 && patchElementIndex < fullSchema.size() - 1) {
-                // Get only the elements that come after our patch element
-                List<String> elementsAfter = fullSchema.subList(patchElementIndex + 1, fullSchema.size());
-                logger.debug("Elements to insert before: {}", elementsAfter);
-                XmlUtils.insertIntoNodeBefore(insertionNode, valueDoc.getDocumentElement(), elementsAfter);
-            } else {
-                // If not found in schema or is the last element, append at the end
-                logger.debug("Patch element '{}' not found in schema or is last element, appending at end",
-                        patchElementName);
-                XmlUtils.insertIntoNode(insertionNode, valueDoc.getDocumentElement());
-            }
-
+            // Insert the patch element before the elements that come after it in the
+            // schema, or at the end if it's not in the schema or is the last element
+            insertionNode.insertBefore(valueNode, XmlUtils.findNextInOrder(insertionNode, valueNode,
+                    eFormsSdkWrapper.getProcurementProjectTypeOrdinals()));
         } else {
-            XmlUtils.insertIntoNode(insertionNode, valueDoc.getDocumentElement());
+            insertionNode.appendChild(valueNode);
         }
+        batch.created(lot, valueNode);
     }
 
     /**
@@ -139,7 +226,7 @@ public class GppPatchApplier {
      * This method finds the node at the specified path, stores its parent,
      * removes the old node, and then inserts the new value.
      */
-    private void handleUpdateOperation(SuggestedGppPatch patch, Node lot) {
+    private void handleUpdateOperation(SuggestedGppPatch patch, Node lot, PatchBatch batch) {
         logger.debug("Handling update operation for patch '{}'", patch.getName());
 
         // Find the node to be updated
@@ -157,17 +244,7 @@ public class GppPatchApplier {
         }
 
         // Parse the new value
-        Document valueDoc;
-        try {
-            valueDoc = XmlUtils.loadDocument(patch.getValue());
-        } catch (Exception e) {
-            logger.error("Failed to parse patch value as XML: {}", patch.getValue(), e);
-            throw new IllegalArgumentException("Invalid patch value: " + patch.getValue(), e);
-        }
-        if (valueDoc == null) {
-            logger.error("Patch value resulted in null document: {}", patch.getValue());
-            throw new IllegalArgumentException("Invalid patch value: " + patch.getValue());
-        }
+        Node newNode = batch.importValue(patch, parentNode.getOwnerDocument());
 
         // Store the next sibling to maintain order
         Node nextSibling = nodeToUpdate.getNextSibling();
@@ -176,9 +253,7 @@ public class GppPatchApplier {
         parentNode.removeChild(nodeToUpdate);
         logger.debug("Removed old node at path '{}'", patch.getPath());
 
-        // Import and insert the new node
-        Node newNode = parentNode.getOwnerDocument().importNode(valueDoc.getDocumentElement(), true);
-
+        // Insert the new node
         if (nextSibling != null) {
             // Insert before the next sibling to maintain order
             parentNode.insertBefore(newNode, nextSibling);
@@ -204,18 +279,37 @@ public class GppPatchApplier {
      * values
      * - Only processes criteria with PLACEHOLDER_WEIGHT values
      * 
+     * <p>
+     * Prefer {@link #updateAwardCriteriaWeights(Notice, AwardWeightSnapshot)}
+     * with a snapshot taken before patching, which avoids keeping a second copy of
+     * the notice around.
+     * 
      * @param patchedNotice  The notice after patches have been applied
      * @param originalNotice The original notice before any patches were applied
      */
     public void updateAwardCriteriaWeights(Notice patchedNotice, Notice originalNotice) {
+        updateAwardCriteriaWeights(patchedNotice, AwardWeightSnapshot.capture(originalNotice));
+    }
+
+    /**
+     * Replaces the placeholder weights of the award criteria of the patched
+     * notice. Criteria whose name appears in the snapshot of the original notice
+     * are existing ones and share the weight left by the GPP criteria in
+     * proportion to their original weights, the others are new GPP criteria.
+     * 
+     * @param patchedNotice   the notice after the patches were applied
+     * @param originalWeights the award criteria weights captured before patching
+     */
+    public void updateAwardCriteriaWeights(Notice patchedNotice, AwardWeightSnapshot originalWeights) {
         logger.info("Starting award criteria weights update");
 
         List<String> lotIds = patchedNotice.getLotIds();
         logger.debug("Processing {} lots for weight updates", lotIds.size());
 
         for (String lotId : lotIds) {
-            updateAwardCriteriaWeightsForLot(patchedNotice, originalNotice, lotId);
+            updateAwardCriteriaWeightsForLot(patchedNotice, originalWeights, lotId);
         }
+        patchedNotice.markModified();
 
         logger.info("Completed award criteria weights update");
     }
@@ -223,12 +317,11 @@ public class GppPatchApplier {
     /**
      * Updates award criteria weights for a specific lot.
      */
-    private void updateAwardCriteriaWeightsForLot(Notice patchedNotice, Notice originalNotice, String lotId) {
+    private void updateAwardCriteriaWeightsForLot(Notice patchedNotice, AwardWeightSnapshot originalWeights,
+            String lotId) {
         logger.debug("Processing weight updates for lot: {}", lotId);
 
         Node patchedLot = patchedNotice.getLotNode(lotId);
-        Node originalLot = originalNotice.getLotNode(lotId);
-
         if (patchedLot == null) {
             logger.warn("Lot {} not found in patched notice", lotId);
             return;
@@ -241,16 +334,17 @@ public class GppPatchApplier {
             return;
         }
 
-        // Categorize criteria as new (from patches) or existing (pre-existing)
+        // Categorize criteria with placeholder weights as new (from patches) or
+        // existing (pre-existing)
         List<Node> newCriteria = new ArrayList<>();
         List<Node> existingCriteria = new ArrayList<>();
-        Map<Node, Integer> originalWeights = new HashMap<>();
+        Map<Node, Integer> weights = new HashMap<>();
 
-        categorizeAwardCriteria(patchedCriteriaNodes, originalLot, newCriteria, existingCriteria, originalWeights);
+        categorizeAwardCriteria(patchedCriteriaNodes, originalWeights, lotId, newCriteria, existingCriteria,
+                weights);
 
         // Only proceed if we have criteria with placeholder weights
-        List<Node> criteriaWithPlaceholders = getCriteriaWithPlaceholderWeights(patchedCriteriaNodes);
-        if (criteriaWithPlaceholders.isEmpty()) {
+        if (newCriteria.isEmpty() && existingCriteria.isEmpty()) {
             logger.debug("No criteria with placeholder weights found in lot {}", lotId);
             return;
         }
@@ -259,22 +353,16 @@ public class GppPatchApplier {
                 newCriteria.size(), existingCriteria.size(), lotId);
 
         // Calculate and distribute weights
-        distributeWeights(newCriteria, existingCriteria, originalWeights);
+        distributeWeights(newCriteria, existingCriteria, weights);
     }
 
     /**
-     * Categorizes award criteria nodes into new (from patches) and existing
-     * (pre-existing).
+     * Categorizes the award criteria with placeholder weights into new (from
+     * patches) and existing (pre-existing), by looking up their names in the
+     * snapshot of the original notice.
      */
-    private void categorizeAwardCriteria(NodeList patchedCriteriaNodes, Node originalLot,
-            List<Node> newCriteria, List<Node> existingCriteria,
-            Map<Node, Integer> originalWeights) {
-
-        // Get original criteria for comparison
-        NodeList originalCriteriaNodes = null;
-        if (originalLot != null) {
-            originalCriteriaNodes = XmlUtils.getNodesAtPath(originalLot, Constants.PATH_AWARD_CRITERION);
-        }
+    private void categorizeAwardCriteria(NodeList patchedCriteriaNodes, AwardWeightSnapshot originalWeights,
+            String lotId, List<Node> newCriteria, List<Node> existingCriteria, Map<Node, Integer> weights) {
 
         for (int i = 0; i < patchedCriteriaNodes.getLength(); i++) {
             Node patchedCriterion = patchedCriteriaNodes.item(i);
@@ -284,17 +372,14 @@ public class GppPatchApplier {
                 continue;
             }
 
-            // Try to find matching criterion in original notice
-            Node matchingOriginal = findMatchingCriterion(patchedCriterion, originalCriteriaNodes);
-
-            if (matchingOriginal != null) {
+            String name = AwardWeightSnapshot.getCriterionName(patchedCriterion);
+            if (name != null && originalWeights.hasCriterion(lotId, name)) {
                 // This is an existing criterion
                 existingCriteria.add(patchedCriterion);
 
-                // Try to get the original weight
-                Integer originalWeight = getOriginalWeight(matchingOriginal);
+                Integer originalWeight = originalWeights.getWeight(lotId, name);
                 if (originalWeight != null) {
-                    originalWeights.put(patchedCriterion, originalWeight);
+                    weights.put(patchedCriterion, originalWeight);
                 }
             } else {
                 // This is a new criterion from patches
@@ -307,75 +392,8 @@ public class GppPatchApplier {
      * Checks if a criterion node has a placeholder weight.
      */
     private boolean hasPlaceholderWeight(Node criterionNode) {
-        try {
-            String weight = XmlUtils.getNodeValueAtPath(criterionNode, Constants.PATH_IN_AWARD_CRITERION_WEIGHT);
-            return Constants.PLACEHOLDER_WEIGHT.equals(weight);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * Gets list of criteria that have placeholder weights.
-     */
-    private List<Node> getCriteriaWithPlaceholderWeights(NodeList criteriaNodes) {
-        List<Node> result = new ArrayList<>();
-        for (int i = 0; i < criteriaNodes.getLength(); i++) {
-            Node criterion = criteriaNodes.item(i);
-            if (hasPlaceholderWeight(criterion)) {
-                result.add(criterion);
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Finds a matching criterion in the original criteria list based on name.
-     */
-    private Node findMatchingCriterion(Node patchedCriterion, NodeList originalCriteria) {
-        if (originalCriteria == null) {
-            return null;
-        }
-
-        try {
-            String patchedName = XmlUtils.getNodeValueAtPath(patchedCriterion, Constants.PATH_IN_AWARD_CRITERION_NAME);
-            if (patchedName == null || patchedName.trim().isEmpty()) {
-                return null;
-            }
-
-            for (int i = 0; i < originalCriteria.getLength(); i++) {
-                Node originalCriterion = originalCriteria.item(i);
-                try {
-                    String originalName = XmlUtils.getNodeValueAtPath(originalCriterion,
-                            Constants.PATH_IN_AWARD_CRITERION_NAME);
-                    if (patchedName.equals(originalName)) {
-                        return originalCriterion;
-                    }
-                } catch (Exception e) {
-                    // Continue to next criterion if name can't be retrieved
-                    continue;
-                }
-            }
-        } catch (Exception e) {
-            logger.debug("Could not get criterion name for matching", e);
-        }
-
-        return null;
-    }
-
-    /**
-     * Gets the original weight from a criterion node.
-     */
-    private Integer getOriginalWeight(Node originalCriterion) {
-        try {
-            String weightStr = XmlUtils.getNodeValueAtPath(originalCriterion, Constants.PATH_IN_AWARD_CRITERION_WEIGHT);
-            if (weightStr != null && !weightStr.trim().isEmpty() && !Constants.PLACEHOLDER_WEIGHT.equals(weightStr)) {
-                return Integer.parseInt(weightStr.trim());
-            }
-        } catch (Exception e) {
-            logger.debug("Could not parse original weight", e);
-        }
-        return null;
+        Node weightNode = XmlUtils.getNodeAtPath(criterionNode, Constants.PATH_IN_AWARD_CRITERION_WEIGHT);
+        return weightNode != null && Constants.PLACEHOLDER_WEIGHT.equals(weightNode.getTextContent().trim());
     }
 
     /**
@@ -484,4 +502,71 @@ public class GppPatchApplier {
             logger.error("Failed to update criterion weight", e);
         }
     }
+
+    /**
+     * What is reused while applying the patches of one
+     * {@link #applyPatches(Notice, List)} call: the parsed values, shared by the
+     * patches with the same value, and the insertion nodes of each lot.
+     *
+     * <p>
+     * Only the insertion nodes of {@link DomPath#isPlain() plain} paths are
+     * cached: creating a node can only change the first match of such a path if
+     * the path reaches into the new node, and those paths are dropped after each
+     * create. Removing or replacing a node drops all the paths of the lot.
+     */
+    private static final class PatchBatch {
+        private final Map<String, XmlFragment> values = new HashMap<>();
+        private final Map<Node, Map<DomPath, Node>> insertionNodes = new IdentityHashMap<>();
+
+        private Node getInsertionNode(Node lot, String path) {
+            DomPath domPath = DomPath.forPath(path);
+            if (domPath == null || !domPath.isPlain()) {
+                return XmlUtils.getNodeAtPath(lot, path);
+            }
+            Map<DomPath, Node> lotNodes = insertionNodes.computeIfAbsent(lot, k -> new HashMap<>());
+            Node node = lotNodes.get(domPath);
+            if (node == null) {
+                node = XmlUtils.getNodeAtPath(lot, path);
+                if (node != null) {
+                    lotNodes.put(domPath, node);
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Drops the cached paths of the lot that could now select the created node
+         * or one of its descendants.
+         */
+        private void created(Node lot, Node node) {
+            Map<DomPath, Node> lotNodes = insertionNodes.get(lot);
+            if (lotNodes != null) {
+                lotNodes.keySet().removeIf(domPath -> domPath.mayReach(lot, node));
+            }
+        }
+
+        private void invalidate(Node lot) {
+            insertionNodes.remove(lot);
+        }
+
+        /**
+         * Returns a copy of the value of the patch owned by the given document,
+         * parsing it only if neither the patch nor a previous patch with the same
+         * value has been parsed yet.
+         */
+        private Node importValue(SuggestedGppPatch patch, Document document) {
+            String value = patch.getValue();
+            if (value == null) {
+                logger.error("Patch value is null for patch '{}'", patch.getName());
+                throw new IllegalArgumentException("Invalid patch value: " + value);
+            }
+            XmlFragment fragment = values.computeIfAbsent(value, v -> patch.getValueFragment());
+            try {
+                return fragment.importInto(document);
+            } catch (Exception e) {
+                logger.error("Failed to parse patch value as XML: {}", value, e);
+                throw new IllegalArgumentException("Invalid patch value: " + value, e);
+            }
+        }
+    }
 }
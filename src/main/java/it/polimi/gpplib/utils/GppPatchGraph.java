@@ -0,0 +1,149 @@
+package it.polimi.gpplib.utils;
+
+import it.polimi.gpplib.model.GppPatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The GPP patches indexed by name, with their {@code dependsOn} links resolved.
+ *
+ * <p>
+ * Names are compared ignoring case; if several patches have the same name, the
+ * first one is used. The chain of parents (ancestors) of every patch is
+ * computed once when the graph is built: a missing parent ends the chain (and
+ * is logged), a cycle is an error.
+ */
+public final class GppPatchGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(GppPatchGraph.class);
+
+    private static final String NO_PARENT = "-";
+
+    private final List<GppPatch> patches;
+    private final Map<String, Node> nodesByName;
+
+    private GppPatchGraph(List<GppPatch> patches, Map<String, Node> nodesByName) {
+        this.patches = patches;
+        this.nodesByName = nodesByName;
+    }
+
+    /**
+     * Builds the graph of the given patches.
+     *
+     * @throws IllegalArgumentException if the dependencies contain a cycle
+     */
+    public static GppPatchGraph build(List<GppPatch> patches) {
+        List<GppPatch> copy = Collections.unmodifiableList(new ArrayList<>(patches));
+        Map<String, Node> nodesByName = new HashMap<>();
+        for (GppPatch patch : copy) {
+            if (patch.getName() == null) {
+                logger.warn("Ignoring GPP patch without a name: {}", patch);
+                continue;
+            }
+            if (nodesByName.putIfAbsent(key(patch.getName()), new Node(patch)) != null) {
+                logger.warn("Ignoring duplicate GPP patch: {}", patch.getName());
+            }
+        }
+        for (GppPatch patch : copy) {
+            Node node = patch.getName() != null ? nodesByName.get(key(patch.getName())) : null;
+            if (node != null && node.patch == patch) {
+                resolveAncestors(node, nodesByName, new LinkedHashSet<>());
+            }
+        }
+        return new GppPatchGraph(copy, nodesByName);
+    }
+
+    private static List<GppPatch> resolveAncestors(Node node, Map<String, Node> nodesByName,
+            LinkedHashSet<Node> path) {
+        if (node.ancestors != null) {
+            return node.ancestors;
+        }
+        if (!path.add(node)) {
+            StringJoiner cycle = new StringJoiner(" -> ");
+            boolean inCycle = false;
+            for (Node n : path) {
+                inCycle |= n == node;
+                if (inCycle) {
+                    cycle.add(n.patch.getName());
+                }
+            }
+            cycle.add(node.patch.getName());
+            throw new IllegalArgumentException("Cyclic GPP patch dependency: " + cycle);
+        }
+
+        String parentName = node.patch.getDependsOn();
+        Node parent = hasParent(parentName) ? nodesByName.get(key(parentName)) : null;
+        if (parent == null) {
+            if (hasParent(parentName)) {
+                logger.warn("Parent of GPP patch {} not found: {}", node.patch.getName(), parentName);
+            }
+            node.ancestors = List.of();
+        } else {
+            List<GppPatch> parentAncestors = resolveAncestors(parent, nodesByName, path);
+            List<GppPatch> ancestors = new ArrayList<>(parentAncestors.size() + 1);
+            ancestors.add(parent.patch);
+            ancestors.addAll(parentAncestors);
+            node.ancestors = Collections.unmodifiableList(ancestors);
+        }
+        path.remove(node);
+        return node.ancestors;
+    }
+
+    /**
+     * Returns whether a {@code dependsOn} value names a parent patch: it is
+     * neither empty nor "-".
+     */
+    static boolean hasParent(String dependsOn) {
+        return dependsOn != null && !dependsOn.isEmpty() && !dependsOn.equals(NO_PARENT);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns all the patches, in their original order.
+     */
+    public List<GppPatch> getPatches() {
+        return patches;
+    }
+
+    /**
+     * Returns the patch with the given name, ignoring case, or null if there is
+     * none.
+     */
+    public GppPatch findByName(String name) {
+        Node node = name != null ? nodesByName.get(key(name)) : null;
+        return node != null ? node.patch : null;
+    }
+
+    /**
+     * Returns the parents of the patch with the given name, from its direct
+     * parent up to the root (or to the first missing parent).
+     *
+     * @return the ancestors, empty if the patch has no parent or does not exist
+     */
+    public List<GppPatch> getAncestors(String name) {
+        Node node = name != null ? nodesByName.get(key(name)) : null;
+        return node != null ? node.ancestors : List.of();
+    }
+
+    private static final class Node {
+        private final GppPatch patch;
+        // nearest first, set by resolveAncestors
+        private List<GppPatch> ancestors;
+
+        private Node(GppPatch patch) {
+            this.patch = patch;
+        }
+    }
+}
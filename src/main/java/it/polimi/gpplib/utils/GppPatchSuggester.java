@@ -1,12 +1,16 @@
 package it.polimi.gpplib.utils;
 
-import org.apache.commons.text.StringSubstitutor;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import it.polimi.gpplib.model.Constants;
 import it.polimi.gpplib.model.GppCriterion;
@@ -17,12 +21,47 @@ import it.polimi.gpplib.model.SuggestedGppPatch;
 
 public class GppPatchSuggester {
 
+    /** Default maximum number of criteria whose rendered patches are cached. */
+    public static final int DEFAULT_RENDER_CACHE_SIZE = 1024;
+
     private List<GppCriterion> gppCriteria = new java.util.ArrayList<>();
-    private List<GppPatch> gppPatches = new java.util.ArrayList<>();
+    private final GppPatchGraph gppPatchGraph;
+
+    // gppCriteria by case-normalized (id, ambition level, GPP document), see
+    // criterionKey
+    private final Map<List<String>, GppCriterion> gppCriteriaByKey = new HashMap<>();
+
+    // rendered patches of each (patch, criterion, language), see
+    // renderCriterionPatch; null if caching is disabled
+    private final FrequencyCache<RenderKey, RenderedPatch> renderCache;
 
+    /**
+     * @throws IllegalArgumentException if the patch dependencies contain a cycle
+     */
     public GppPatchSuggester(List<GppCriterion> gppCriteria, List<GppPatch> gppPatches) {
+        this(gppCriteria, GppPatchGraph.build(gppPatches));
+    }
+
+    public GppPatchSuggester(List<GppCriterion> gppCriteria, GppPatchGraph gppPatchGraph) {
+        this(gppCriteria, gppPatchGraph, DEFAULT_RENDER_CACHE_SIZE);
+    }
+
+    /**
+     * @param renderCacheSize the maximum number of criteria whose rendered patches
+     *                        are cached, 0 to disable the cache
+     */
+    public GppPatchSuggester(List<GppCriterion> gppCriteria, GppPatchGraph gppPatchGraph, int renderCacheSize) {
         this.gppCriteria = gppCriteria;
-        this.gppPatches = gppPatches;
+        this.gppPatchGraph = gppPatchGraph;
+        this.renderCache = renderCacheSize > 0 ? new FrequencyCache<>(renderCacheSize) : null;
+        for (GppCriterion criterion : gppCriteria) {
+            List<String> key = criterionKey(criterion.getId(), criterion.getAmbitionLevel(),
+                    criterion.getGppDocument());
+            // the first criterion wins, as in a scan of the list
+            if (key != null) {
+                gppCriteriaByKey.putIfAbsent(key, criterion);
+            }
+        }
     }
 
     /**
@@ -69,10 +108,12 @@ public class GppPatchSuggester {
         suggestedPatches.addAll(strategicProcurementPatches);
 
         // add the direct patches for each of the criteria (e.g. AC, SC, TS, CPC)
+        LotContext lotContext = new LotContext(notice, lotId);
+        Set<SuggestedGppPatch> seenPatches = new HashSet<>(suggestedPatches);
         for (GppCriterion criterion : lotCriteria) {
-            List<SuggestedGppPatch> criterionPatches = suggestCriterionPatches(notice, lotId, criterion);
+            List<SuggestedGppPatch> criterionPatches = suggestCriterionPatches(notice, lotContext, criterion);
             for (SuggestedGppPatch patch : criterionPatches) {
-                if (!suggestedPatches.contains(patch)) {
+                if (seenPatches.add(patch)) {
                     suggestedPatches.add(patch);
                 }
             }
@@ -89,12 +130,14 @@ public class GppPatchSuggester {
     /**
      * Suggests patches to add a specific GppCriterion (AC, SC, TS, CPC).
      *
-     * @param lotId     the ID of the lot
-     * @param criterion the GppCriterion to suggest patches for
+     * @param lotContext the lot
+     * @param criterion  the GppCriterion to suggest patches for
      * @return a list of suggested patches for the given criterion
      */
-    private List<SuggestedGppPatch> suggestCriterionPatches(Notice notice, String lotId, GppCriterion criterion) {
+    private List<SuggestedGppPatch> suggestCriterionPatches(Notice notice, LotContext lotContext,
+            GppCriterion criterion) {
         List<SuggestedGppPatch> patches = new java.util.ArrayList<>();
+        String lotId = lotContext.lotId;
 
         String patchName = Constants.CRITERION_TYPE_TO_PATCH_NAME.get(criterion.getCriterionType().toLowerCase());
         if (patchName == null) {
@@ -109,49 +152,85 @@ public class GppPatchSuggester {
         }
 
         // TODO: eventually, the criterion should also account for the notice language
-        Map<String, String> variables = buildPatchVariables(criterion, notice.getNoticeLanguage());
+        String language = notice.getNoticeLanguage();
+        if (language == null || language.isEmpty()) {
+            language = Constants.TAG_ENGLISH; // Default to English if not provided
+        }
+        RenderedPatch rendered = renderCriterionPatch(gppPatch, criterion, language);
 
-        String parsedValue = parseValue(gppPatch.getValue(), variables);
-        String description = String.format(
-                "Adds the criterion: { Type: %s, Name: %s, ID: %s, Ambition Level: %s, Document: %s }",
-                criterion.getCriterionType(),
-                criterion.getName(),
-                criterion.getId(),
-                criterion.getAmbitionLevel(),
-                criterion.getGppDocument());
         SuggestedGppPatch suggestedPatch = new SuggestedGppPatch(
                 criterion.getCriterionType() + " --- " + criterion.getId() + ": " + criterion.getName(),
                 gppPatch.getBtIds(),
                 gppPatch.getDependsOn(),
                 gppPatch.getPathInLot(),
-                parsedValue,
+                null,
                 Constants.OP_CREATE,
-                description,
+                rendered.description,
                 lotId);
+        suggestedPatch.setValueFragment(rendered.value);
         patches.add(suggestedPatch);
 
         // Add parent patches if needed (to build the structure)
-        List<SuggestedGppPatch> parentPatches = buildParentPatches(notice, lotId, gppPatch, variables, patchName);
+        List<SuggestedGppPatch> parentPatches = buildParentPatches(lotContext, gppPatch, rendered.ancestorValues,
+                patchName);
         patches.addAll(0, parentPatches);
 
         return patches;
     }
 
-    // ??++
     /**
-     * Builds the variable map for patch value substitution from a GppCriterion.
-     * The mapping of this depends on the arguments included in the GppPatch data
-     * domain knowledge file.
+     * Returns the rendered value, parent values and description of the patch of a
+     * criterion in the given language. They depend only on the patch, the
+     * criterion and the language (not on the notice or the lot), so they are
+     * rendered once and cached.
      */
-    private Map<String, String> buildPatchVariables(GppCriterion criterion, String language) {
-        Map<String, String> variables = new HashMap<>(Constants.NAMESPACE_MAP);
+    private RenderedPatch renderCriterionPatch(GppPatch gppPatch, GppCriterion criterion, String language) {
+        if (renderCache == null) {
+            return doRenderCriterionPatch(gppPatch, criterion, language);
+        }
+        RenderKey key = new RenderKey(gppPatch, criterionKey(criterion.getId(), criterion.getAmbitionLevel(),
+                criterion.getGppDocument()), language);
+        return renderCache.get(key, k -> doRenderCriterionPatch(gppPatch, criterion, language));
+    }
 
-        if (language == null || language.isEmpty()) {
-            language = Constants.TAG_ENGLISH; // Default to English if not provided
+    private RenderedPatch doRenderCriterionPatch(GppPatch gppPatch, GppCriterion criterion, String language) {
+        String[] args = buildPatchArgs(criterion);
+
+        List<GppPatch> ancestors = gppPatchGraph.getAncestors(gppPatch.getName());
+        List<XmlFragment> ancestorValues = new java.util.ArrayList<>(ancestors.size());
+        for (GppPatch ancestor : ancestors) {
+            ancestorValues.add(toFragment(render(ancestor, language, args)));
         }
+        String description = String.format(
+                "Adds the criterion: { Type: %s, Name: %s, ID: %s, Ambition Level: %s, Document: %s }",
+                criterion.getCriterionType(),
+                criterion.getName(),
+                criterion.getId(),
+                criterion.getAmbitionLevel(),
+                criterion.getGppDocument());
+        return new RenderedPatch(toFragment(render(gppPatch, language, args)), ancestorValues, description);
+    }
 
-        variables.put(Constants.TAG_LANGUAGE, language);
+    private static XmlFragment toFragment(String value) {
+        return value != null ? new XmlFragment(value) : null;
+    }
+
+    /**
+     * Returns the hit/miss statistics of the cache of rendered criterion patches.
+     * All zeros if the cache is disabled.
+     */
+    public CacheStats getRenderCacheStats() {
+        return renderCache != null ? renderCache.getStats() : new CacheStats(0, 0);
+    }
 
+    // ??++
+    /**
+     * Builds the arguments ({arg0}, {arg1}, ...) for patch value substitution
+     * from a GppCriterion.
+     * The mapping of this depends on the arguments included in the GppPatch data
+     * domain knowledge file.
+     */
+    private String[] buildPatchArgs(GppCriterion criterion) {
         switch (criterion.getCriterionType().toLowerCase()) {
             case Constants.CRITERION_TYPE_TECHNICAL_SPECIFICATION:
                 // For now, technical specifications will go in the same patch as award criteria
@@ -168,13 +247,13 @@ public class GppPatchSuggester {
                 // TODO: Maybe just remove them or add a minimum or something similar
                 // since you send the patch suggestions before even knowing how many will be
                 // added
-                variables.put(Constants.TAG_ARG0, Constants.AWARD_CRITERION_WEIGHT_CODE_IDENTIFIER);
-                variables.put(Constants.TAG_ARG1, Constants.AWARD_CRITERION_WEIGHT_CODE);
-                variables.put(Constants.TAG_ARG2, Constants.PLACEHOLDER_WEIGHT);
-                variables.put(Constants.TAG_ARG3, Constants.AWARD_CRITERIA_TYPE_QUALITY);
-                variables.put(Constants.TAG_ARG4, formattedName);
-                variables.put(Constants.TAG_ARG5, criterion.getDescription());
-                break;
+                return new String[] {
+                        Constants.AWARD_CRITERION_WEIGHT_CODE_IDENTIFIER,
+                        Constants.AWARD_CRITERION_WEIGHT_CODE,
+                        Constants.PLACEHOLDER_WEIGHT,
+                        Constants.AWARD_CRITERIA_TYPE_QUALITY,
+                        formattedName,
+                        criterion.getDescription() };
             case Constants.CRITERION_TYPE_SELECTION_CRITERIA:
                 formattedName = String.format(
                         "GPP Select Criterion [ID: %s, Name: %s, Ambition Level: %s, GPP Document: %s]",
@@ -187,9 +266,7 @@ public class GppPatchSuggester {
                 String tendererReqTypeCode = criterion.getSelectionCriterionType() != null
                         ? criterion.getSelectionCriterionType()
                         : Constants.TENDERER_REQ_CODE_ENV_MANAGEMENT;
-                variables.put(Constants.TAG_ARG0, tendererReqTypeCode);
-                variables.put(Constants.TAG_ARG1, formattedDescription);
-                break;
+                return new String[] { tendererReqTypeCode, formattedDescription };
             case Constants.CRITERION_TYPE_CONTRACT_PERFORMANCE_CLAUSE:
                 formattedName = String.format(
                         "GPP Contract Performance Clause [ID: %s, Name: %s, Ambition Level: %s, GPP Document: %s]",
@@ -199,49 +276,37 @@ public class GppPatchSuggester {
                         criterion.getGppDocument());
                 formattedDescription = String.format(
                         "%s --- Extended Description: %s", formattedName, criterion.getDescription());
-                variables.put(Constants.TAG_ARG0, formattedDescription);
-                break;
+                return new String[] { formattedDescription };
             default:
-                break;
+                return new String[0];
         }
-
-        return variables;
     }
 
     /**
      * Builds a list of parent patches required for the given patch if the path does
      * not exist in the notice.
      */
-    private List<SuggestedGppPatch> buildParentPatches(Notice notice, String lotId, GppPatch gppPatch,
-            Map<String, String> variables, String patchName) {
-        List<SuggestedGppPatch> parentPatches = new java.util.ArrayList<>();
-        GppPatch currentPatch = gppPatch;
-
-        while (!notice.doesPathExistInLot(lotId, currentPatch.getPathInLot())) {
-            String parentPatchName = currentPatch.getDependsOn();
-            if (parentPatchName == null || parentPatchName.isEmpty() || parentPatchName.equals("-")) {
-                System.err.println("No parent patch defined for: " + currentPatch.getName());
-                break;
-            }
-            GppPatch parentPatch = findGppPatchByName(parentPatchName);
-            if (parentPatch == null) {
-                System.err.println("Parent Patch not found: " + parentPatchName);
-                break;
-            }
-
-            SuggestedGppPatch parentSuggestedPatch = new SuggestedGppPatch(
+    private List<SuggestedGppPatch> buildParentPatches(LotContext lotContext, GppPatch gppPatch,
+            List<XmlFragment> ancestorValues, String patchName) {
+        List<GppPatch> ancestors = gppPatchGraph.getAncestors(gppPatch.getName());
+        int missing = lotContext.countMissingAncestors(gppPatch, ancestors);
+
+        // outermost parent first
+        List<SuggestedGppPatch> parentPatches = new java.util.ArrayList<>(missing);
+        for (int i = missing - 1; i >= 0; i--) {
+            GppPatch parentPatch = ancestors.get(i);
+            SuggestedGppPatch parent = new SuggestedGppPatch(
                     parentPatch.getName(),
                     parentPatch.getBtIds(),
                     parentPatch.getDependsOn(),
                     parentPatch.getPathInLot(),
-                    parseValue(parentPatch.getValue(), variables),
+                    null,
                     Constants.OP_CREATE,
                     "Parent structure for: " + patchName,
-                    lotId);
-            parentPatches.add(0, parentSuggestedPatch);
-            currentPatch = parentPatch;
+                    lotContext.lotId);
+            parent.setValueFragment(ancestorValues.get(i));
+            parentPatches.add(parent);
         }
-
         return parentPatches;
     }
 
@@ -260,10 +325,7 @@ public class GppPatchSuggester {
 
         List<String> gppSources = getGppSources(lotCriteria);
         for (String source : gppSources) {
-            Map<String, String> variables = new HashMap<>(Constants.NAMESPACE_MAP);
-            variables.put(Constants.TAG_LANGUAGE, language);
-            variables.put(Constants.TAG_ARG0, source);
-            String parsedValue = parseValue(gppCriteriaPatch.getValue(), variables);
+            String parsedValue = render(gppCriteriaPatch, language, source);
 
             SuggestedGppPatch patch = new SuggestedGppPatch(
                     Constants.PATCH_NAME_GPP_CRITERIA_SOURCE + " - " + source,
@@ -294,10 +356,7 @@ public class GppPatchSuggester {
 
         List<String> environmentalImpacts = getEnvironmentalImpacts(lotCriteria);
         for (String impact : environmentalImpacts) {
-            Map<String, String> variables = new HashMap<>(Constants.NAMESPACE_MAP);
-            variables.put(Constants.TAG_LANGUAGE, language);
-            variables.put(Constants.TAG_ARG0, impact);
-            String parsedValue = parseValue(envImpactPatch.getValue(), variables);
+            String parsedValue = render(envImpactPatch, language, impact);
             SuggestedGppPatch patch = new SuggestedGppPatch(
                     Constants.PATCH_NAME_ENVIRONMENTAL_IMPACT + " - " + impact,
                     envImpactPatch.getBtIds(),
@@ -343,10 +402,7 @@ public class GppPatchSuggester {
             language = Constants.TAG_ENGLISH; // Default to English if not provided
         }
 
-        Map<String, String> variables = new HashMap<>(Constants.NAMESPACE_MAP);
-        variables.put(Constants.TAG_LANGUAGE, language);
-        variables.put(Constants.TAG_ARG0, Constants.PATCH_DESCRIPTION_STRATEGIC_PROCUREMENT);
-        String parsedValue = parseValue(envImpactPatch.getValue(), variables);
+        String parsedValue = render(envImpactPatch, language, Constants.PATCH_DESCRIPTION_STRATEGIC_PROCUREMENT);
         return new SuggestedGppPatch(
                 Constants.PATCH_NAME_STRATEGIC_PROCUREMENT_ENV_IMP,
                 envImpactPatch.getBtIds(),
@@ -372,12 +428,7 @@ public class GppPatchSuggester {
     }
 
     private GppPatch findGppPatchByName(String name) {
-        for (GppPatch patch : gppPatches) {
-            if (patch.getName().equalsIgnoreCase(name)) {
-                return patch;
-            }
-        }
-        return null; // Not found
+        return gppPatchGraph.findByName(name);
     }
 
     private List<String> getGppSources(List<GppCriterion> criteria) {
@@ -410,18 +461,22 @@ public class GppPatchSuggester {
      * @return the matching GppCriterion, or null if not found
      */
     private GppCriterion convertToGppCriterion(SuggestedGppCriterion suggestedCriterion) {
-        for (GppCriterion criterion : gppCriteria) {
-            boolean idMatch = suggestedCriterion.getId() != null
-                    && suggestedCriterion.getId().equalsIgnoreCase(criterion.getId());
-            boolean ambitionMatch = suggestedCriterion.getAmbitionLevel() != null
-                    && suggestedCriterion.getAmbitionLevel().equalsIgnoreCase(criterion.getAmbitionLevel());
-            boolean docMatch = suggestedCriterion.getGppDocument() != null
-                    && suggestedCriterion.getGppDocument().equalsIgnoreCase(criterion.getGppDocument());
-            if (idMatch && ambitionMatch && docMatch) {
-                return criterion;
-            }
+        List<String> key = criterionKey(suggestedCriterion.getId(), suggestedCriterion.getAmbitionLevel(),
+                suggestedCriterion.getGppDocument());
+        return key != null ? gppCriteriaByKey.get(key) : null;
+    }
+
+    /**
+     * Returns the lookup key of a criterion: its id, ambition level and GPP
+     * document, compared ignoring case. Null if any of them is null, since such a
+     * criterion can never match.
+     */
+    private static List<String> criterionKey(String id, String ambitionLevel, String gppDocument) {
+        if (id == null || ambitionLevel == null || gppDocument == null) {
+            return null;
         }
-        return null;
+        return Arrays.asList(id.toLowerCase(Locale.ROOT), ambitionLevel.toLowerCase(Locale.ROOT),
+                gppDocument.toLowerCase(Locale.ROOT));
     }
 
     /**
@@ -444,12 +499,13 @@ public class GppPatchSuggester {
         return criteriaPerLot;
     }
 
-    private String parseValue(String value, Map<String, String> variables) {
-        if (value == null || value.isEmpty()) {
-            return value; // No parsing needed
-        }
-        StringSubstitutor sub = new StringSubstitutor(variables, "{", "}");
-        return sub.replace(value);
+    /**
+     * Renders the compiled value of a patch with the given language and
+     * arguments ({arg0}, {arg1}, ...).
+     */
+    private static String render(GppPatch patch, String language, String... args) {
+        PatchTemplate template = patch.getTemplate();
+        return template != null ? template.render(language, args) : null;
     }
 
     /**
@@ -471,6 +527,10 @@ public class GppPatchSuggester {
             return patches; // No award criteria to update
         }
 
+        if (language == null || language.isEmpty()) {
+            language = Constants.TAG_ENGLISH; // Default to English if not provided
+        }
+
         Node lot = notice.getLotNode(lotId);
         if (lot == null) {
             return patches;
@@ -526,12 +586,11 @@ public class GppPatchSuggester {
                 continue;
             }
 
-            // Build variables for the patch
-            Map<String, String> variables = buildExistingAwardCriterionPatchVariables(
-                    existingType, existingName, existingDescription, language);
+            // Build arguments for the patch
+            String[] args = buildExistingAwardCriterionPatchArgs(existingType, existingName, existingDescription);
 
             // Create the update patch
-            String parsedValue = parseValue(gppPatch.getValue(), variables);
+            String parsedValue = render(gppPatch, language, args);
 
             // Determine patch path and identifier based on what's available
             String patchPath;
@@ -567,29 +626,115 @@ public class GppPatchSuggester {
     }
 
     /**
-     * Builds variables for updating existing award criteria with GPP structure.
+     * Builds arguments for updating existing award criteria with GPP structure.
      */
-    private Map<String, String> buildExistingAwardCriterionPatchVariables(
-            String existingType, String existingName, String existingDescription, String language) {
-        Map<String, String> variables = new HashMap<>(Constants.NAMESPACE_MAP);
+    private String[] buildExistingAwardCriterionPatchArgs(
+            String existingType, String existingName, String existingDescription) {
+        // Use the same structure as award criteria patches, with the existing values
+        // from the node, or defaults
+        return new String[] {
+                Constants.AWARD_CRITERION_WEIGHT_CODE_IDENTIFIER,
+                Constants.AWARD_CRITERION_WEIGHT_CODE,
+                Constants.PLACEHOLDER_WEIGHT,
+                existingType != null ? existingType : Constants.AWARD_CRITERIA_TYPE_QUALITY,
+                existingName != null ? existingName : "",
+                existingDescription != null ? existingDescription : "" };
+    }
 
-        if (language == null || language.isEmpty()) {
-            language = Constants.TAG_ENGLISH; // Default to English if not provided
+    /**
+     * What is known about the structure of one lot during a
+     * {@link #suggestGppPatches} call. The notice does not change during the
+     * call, so whether a path exists in the lot, and hence how many parents of a
+     * patch are missing, is only looked up once per path and per patch.
+     */
+    private static final class LotContext {
+        private final String lotId;
+        private final Node lot;
+        private final Map<String, Boolean> existingPaths = new HashMap<>();
+        private final Map<GppPatch, Integer> missingAncestors = new java.util.IdentityHashMap<>();
+
+        private LotContext(Notice notice, String lotId) {
+            this.lotId = lotId;
+            this.lot = notice.getLotNode(lotId);
+        }
+
+        private boolean doesPathExist(String path) {
+            if (lot == null) {
+                return false;
+            }
+            return existingPaths.computeIfAbsent(path, p -> XmlUtils.doesNodeExistAtPath(lot, p));
         }
 
-        variables.put(Constants.TAG_LANGUAGE, language);
+        /**
+         * Returns how many of the given ancestors of the patch (nearest first) must
+         * be inserted before it: they are walked up until one whose path already
+         * exists in the lot.
+         */
+        private int countMissingAncestors(GppPatch patch, List<GppPatch> ancestors) {
+            Integer count = missingAncestors.get(patch);
+            if (count == null) {
+                GppPatch currentPatch = patch;
+                int missing = 0;
+                while (!doesPathExist(currentPatch.getPathInLot())) {
+                    if (missing == ancestors.size()) {
+                        String parentPatchName = currentPatch.getDependsOn();
+                        if (!GppPatchGraph.hasParent(parentPatchName)) {
+                            System.err.println("No parent patch defined for: " + currentPatch.getName());
+                        } else {
+                            System.err.println("Parent Patch not found: " + parentPatchName);
+                        }
+                        break;
+                    }
+                    currentPatch = ancestors.get(missing);
+                    missing++;
+                }
+                count = missing;
+                missingAncestors.put(patch, count);
+            }
+            return count;
+        }
+    }
 
-        // Use the same structure as award criteria patches
-        variables.put(Constants.TAG_ARG0, Constants.AWARD_CRITERION_WEIGHT_CODE_IDENTIFIER);
-        variables.put(Constants.TAG_ARG1, Constants.AWARD_CRITERION_WEIGHT_CODE);
-        variables.put(Constants.TAG_ARG2, Constants.PLACEHOLDER_WEIGHT);
+    private static final class RenderKey {
+        private final GppPatch patch;
+        private final List<String> criterion;
+        private final String language;
+        private final int hash;
+
+        private RenderKey(GppPatch patch, List<String> criterion, String language) {
+            this.patch = patch;
+            this.criterion = criterion;
+            this.language = language;
+            this.hash = Objects.hash(System.identityHashCode(patch), criterion, language);
+        }
 
-        // Use existing values from the node, or defaults
-        variables.put(Constants.TAG_ARG3, existingType != null ? existingType : Constants.AWARD_CRITERIA_TYPE_QUALITY);
-        variables.put(Constants.TAG_ARG4, existingName != null ? existingName : "");
-        variables.put(Constants.TAG_ARG5, existingDescription != null ? existingDescription : "");
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof RenderKey))
+                return false;
+            RenderKey that = (RenderKey) o;
+            return hash == that.hash && patch == that.patch && Objects.equals(criterion, that.criterion)
+                    && Objects.equals(language, that.language);
+        }
 
-        return variables;
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
+    private static final class RenderedPatch {
+        private final XmlFragment value;
+        // values of the ancestors of the patch, nearest first
+        private final List<XmlFragment> ancestorValues;
+        private final String description;
+
+        private RenderedPatch(XmlFragment value, List<XmlFragment> ancestorValues, String description) {
+            this.value = value;
+            this.ancestorValues = ancestorValues;
+            this.description = description;
+        }
+    }
 }
@@ -25,12 +25,26 @@ public class GppPatchesLoader {
     }
 
     public List<GppPatch> loadGppPatches() throws IOException {
-        try (InputStream is = getClass().getClassLoader()
-                .getResourceAsStream(filePath)) {
+        try (InputStream is = ResourceLocator.open(filePath)) {
             Objects.requireNonNull(is,
-                    "Resource not found on classpath: " + filePath);
-            return objectMapper.readValue(is, new TypeReference<List<GppPatch>>() {
+                    "Resource not found on classpath or filesystem: " + filePath);
+            List<GppPatch> patches = objectMapper.readValue(is, new TypeReference<List<GppPatch>>() {
             });
+            for (GppPatch patch : patches) {
+                patch.getTemplate();
+            }
+            return patches;
         }
     }
+
+    /**
+     * Loads the patches and resolves their dependencies.
+     *
+     * @throws IOException              if the resource is not found or cannot be
+     *                                  parsed
+     * @throws IllegalArgumentException if the dependencies contain a cycle
+     */
+    public GppPatchGraph loadGppPatchGraph() throws IOException {
+        return GppPatchGraph.build(loadGppPatches());
+    }
 }
@@ -0,0 +1,178 @@
+package it.polimi.gpplib.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry of the expensive, read-only resources used by the
+ * analyzers: the {@link GppDomainKnowledgeService} of a set of domain knowledge
+ * paths and the {@link EFormsSdkWrapper} of an eForms SDK version.
+ *
+ * <p>
+ * Each resource is loaded lazily, exactly once per key, even when several
+ * threads ask for it at the same time; the others wait for the first load. If
+ * the load fails, the error is thrown to the caller and the next caller tries
+ * again. Resources are reference-counted: every {@code acquire} returns a
+ * {@link Lease} that must be closed when the resource is no longer needed, and
+ * the resource is dropped (and closed, if it is {@link AutoCloseable}) when its
+ * last lease is closed.
+ *
+ * <p>
+ * The registry holds its resources strongly: a lease that is lost without being
+ * closed keeps its resource loaded for the life of the registry, which for the
+ * {@link #getDefault() default} one is the life of the process. Owners of
+ * leases that may be dropped without being closed should release them when
+ * they are garbage collected, as
+ * {@link it.polimi.gpplib.DefaultGppNoticeAnalyzer} does with a
+ * {@link java.lang.ref.Cleaner}.
+ */
+public final class GppResourceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(GppResourceRegistry.class);
+
+    private static final GppResourceRegistry DEFAULT = new GppResourceRegistry();
+
+    private final ConcurrentMap<List<Object>, Entry<?>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty registry, independent of the {@link #getDefault() default}
+     * one.
+     */
+    public GppResourceRegistry() {
+    }
+
+    /**
+     * Returns the process-wide registry used by
+     * {@link it.polimi.gpplib.DefaultGppNoticeAnalyzer}.
+     */
+    public static GppResourceRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Acquires the domain knowledge loaded from the given paths.
+     *
+     * @see GppDomainKnowledgeService#GppDomainKnowledgeService(String, String,
+     *      String, String, int)
+     * @throws IllegalArgumentException if the domain knowledge cannot be loaded
+     */
+    public Lease<GppDomainKnowledgeService> acquireDomainKnowledge(String snapshotPath, String gppDocsPath,
+            String gppCriteriaPath, String gppPatchesPath, int relevanceCacheSize) {
+        List<Object> key = Arrays.asList("domain-knowledge", snapshotPath, gppDocsPath, gppCriteriaPath,
+                gppPatchesPath, relevanceCacheSize);
+        return acquire(key, () -> new GppDomainKnowledgeService(snapshotPath, gppDocsPath, gppCriteriaPath,
+                gppPatchesPath, relevanceCacheSize));
+    }
+
+    /**
+     * Acquires the eForms SDK schema information of the given version.
+     *
+     * @see EFormsSdkWrapper#EFormsSdkWrapper(String)
+     * @throws XmlUtils.XmlUtilsException if the SDK files cannot be loaded
+     */
+    public Lease<EFormsSdkWrapper> acquireEFormsSdk(String version) {
+        List<Object> key = Arrays.asList("eforms-sdk", version);
+        return acquire(key, () -> new EFormsSdkWrapper(version));
+    }
+
+    /**
+     * Returns the number of resources currently held.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Lease<T> acquire(List<Object> key, Supplier<T> loader) {
+        Entry<T> entry = (Entry<T>) entries.compute(key, (k, existing) -> {
+            Entry<?> e = existing != null ? existing : new Entry<>();
+            e.references++;
+            return e;
+        });
+        try {
+            return new Lease<>(this, key, entry, entry.getOrLoad(key, loader));
+        } catch (RuntimeException | Error e) {
+            release(key, entry);
+            throw e;
+        }
+    }
+
+    private void release(List<Object> key, Entry<?> entry) {
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(key, (k, e) -> {
+            if (e != entry) {
+                return e;
+            }
+            e.references--;
+            removed[0] = e.references == 0;
+            return removed[0] ? null : e;
+        });
+        if (removed[0]) {
+            logger.debug("Released shared resource: {}", key);
+            entry.close();
+        }
+    }
+
+    /**
+     * A reference to a shared resource. Closing it more than once has no effect.
+     */
+    public static final class Lease<T> implements AutoCloseable {
+
+        private final GppResourceRegistry registry;
+        private final List<Object> key;
+        private final Entry<T> entry;
+        private final T resource;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(GppResourceRegistry registry, List<Object> key, Entry<T> entry, T resource) {
+            this.registry = registry;
+            this.key = key;
+            this.entry = entry;
+            this.resource = resource;
+        }
+
+        public T get() {
+            return resource;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                registry.release(key, entry);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+        // guarded by the registry map
+        private int references;
+        // guarded by this
+        private T value;
+
+        private synchronized T getOrLoad(List<Object> key, Supplier<T> loader) {
+            if (value == null) {
+                logger.info("Loading shared resource: {}", key);
+                value = loader.get();
+            }
+            return value;
+        }
+
+        private synchronized void close() {
+            if (value instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) value).close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close shared resource", e);
+                }
+            }
+            value = null;
+        }
+    }
+}
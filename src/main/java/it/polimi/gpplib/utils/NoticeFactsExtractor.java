@@ -0,0 +1,322 @@
+package it.polimi.gpplib.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.polimi.gpplib.model.Constants;
+import it.polimi.gpplib.model.NoticeFacts;
+import it.polimi.gpplib.utils.XmlUtils.XmlUtilsException;
+
+/**
+ * Extracts {@link NoticeFacts} from a notice in a single StAX pass, without
+ * building a DOM. Memory usage is proportional to the number of lots and CPV
+ * codes, not to the size of the notice.
+ *
+ * <p>
+ * It reads the same elements as the corresponding {@link Constants} paths:
+ * <ul>
+ * <li>{@code cbc:NoticeLanguageCode} and {@code cbc:CustomizationID} under the
+ * root element</li>
+ * <li>{@code cac:Main/AdditionalCommodityClassification} under the root
+ * {@code cac:ProcurementProject}</li>
+ * <li>{@code cbc:ID[@schemeName='Lot']} and the lot CPV codes under each
+ * {@code cac:ProcurementProjectLot}</li>
+ * </ul>
+ * DTDs and external entities are not supported.
+ */
+public final class NoticeFactsExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoticeFactsExtractor.class);
+
+    private static final String CAC = Constants.NAMESPACE_MAP.get("cac");
+    private static final String CBC = Constants.NAMESPACE_MAP.get("cbc");
+
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    static {
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private NoticeFactsExtractor() {
+    }
+
+    /**
+     * Extracts the facts from a notice byte stream. The encoding is taken from
+     * the XML declaration. The stream is not closed.
+     *
+     * @throws XmlUtilsException if the XML cannot be parsed
+     */
+    public static NoticeFacts extract(InputStream xmlStream) {
+        if (xmlStream == null) {
+            throw new XmlUtilsException("XML stream must not be null");
+        }
+        XMLStreamReader reader = null;
+        try {
+            // the factory is safe to share once configured, readers are not
+            reader = inputFactory.createXMLStreamReader(xmlStream);
+            NoticeFacts facts = new Scanner(reader).scan();
+            logger.debug("Extracted notice facts with {} lots", facts.getLotIds().size());
+            return facts;
+        } catch (XMLStreamException e) {
+            logger.error("Failed to parse XML document", e);
+            throw new XmlUtilsException("Failed to parse XML document", e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Extracts the facts from the encoded bytes of a notice.
+     *
+     * @throws XmlUtilsException if the XML cannot be parsed
+     */
+    public static NoticeFacts extract(byte[] xmlBytes) {
+        if (xmlBytes == null) {
+            throw new XmlUtilsException("XML bytes must not be null");
+        }
+        return extract(new ByteArrayInputStream(xmlBytes));
+    }
+
+    /**
+     * Extracts the facts from a notice file, which is memory-mapped rather than
+     * read into the heap.
+     *
+     * @throws XmlUtilsException if the file cannot be read or the XML cannot be
+     *                           parsed
+     */
+    public static NoticeFacts extract(Path xmlFile) {
+        if (xmlFile == null) {
+            throw new XmlUtilsException("XML file path must not be null");
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(xmlFile, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.error("Failed to read XML file: {}", xmlFile, e);
+            throw new XmlUtilsException("Failed to read XML file: " + xmlFile, e);
+        }
+        return extract(new ByteBufferInputStream(mapped));
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                logger.debug("Failed to close XML stream reader", e);
+            }
+        }
+    }
+
+    /** State of a single pass over the document. */
+    private static final class Scanner {
+
+        private final XMLStreamReader reader;
+
+        private String noticeLanguage;
+        private String sdkVersion;
+        private String projectMainCpv;
+        private final List<String> projectAdditionalCpvs = new ArrayList<>();
+        private final List<String> lotIds = new ArrayList<>();
+        private final Map<String, List<String>> lotCpvs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        // current lot, null outside of a cac:ProcurementProjectLot
+        private boolean inLot;
+        private boolean lotHasIdElement;
+        private String lotId;
+        private String lotMainCpv;
+        private final List<String> lotAdditionalCpvs = new ArrayList<>();
+
+        // depth 1 is the root element
+        private int depth;
+        private boolean inProject;
+        private final StringBuilder text = new StringBuilder();
+        private int textDepth;
+        private TextTarget textTarget;
+
+        private enum TextTarget {
+            LANGUAGE, SDK_VERSION, PROJECT_MAIN_CPV, PROJECT_ADDITIONAL_CPV, LOT_ID, LOT_MAIN_CPV,
+            LOT_ADDITIONAL_CPV
+        }
+
+        private Scanner(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        private NoticeFacts scan() throws XMLStreamException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        depth--;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (textTarget != null) {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            List<String> projectCpvs = new ArrayList<>();
+            if (projectMainCpv != null) {
+                projectCpvs.add(projectMainCpv);
+            }
+            projectCpvs.addAll(projectAdditionalCpvs);
+            return new NoticeFacts(noticeLanguage, sdkVersion, projectCpvs, lotIds, lotCpvs);
+        }
+
+        private void startElement() {
+            if (textTarget != null) {
+                // nested element, its text is part of the captured text content
+                return;
+            }
+            String ns = reader.getNamespaceURI();
+            String name = reader.getLocalName();
+            if (depth == 2) {
+                if (CBC.equals(ns) && "NoticeLanguageCode".equals(name) && noticeLanguage == null) {
+                    captureText(TextTarget.LANGUAGE);
+                } else if (CBC.equals(ns) && "CustomizationID".equals(name) && sdkVersion == null) {
+                    captureText(TextTarget.SDK_VERSION);
+                } else if (CAC.equals(ns) && "ProcurementProject".equals(name)) {
+                    inProject = true;
+                } else if (CAC.equals(ns) && "ProcurementProjectLot".equals(name)) {
+                    startLot();
+                }
+            } else if (depth == 3 && inProject) {
+                if (CAC.equals(ns) && "MainCommodityClassification".equals(name) && projectMainCpv == null) {
+                    captureText(TextTarget.PROJECT_MAIN_CPV);
+                } else if (CAC.equals(ns) && "AdditionalCommodityClassification".equals(name)) {
+                    captureText(TextTarget.PROJECT_ADDITIONAL_CPV);
+                }
+            } else if (depth == 3 && inLot) {
+                if (CBC.equals(ns) && "ID".equals(name) && isLotScheme()) {
+                    // the first matching ID is the lot ID, but any of them makes it a lot
+                    lotHasIdElement = true;
+                    if (lotId == null) {
+                        captureText(TextTarget.LOT_ID);
+                    }
+                } else if (CAC.equals(ns) && "ProcurementProject".equals(name)) {
+                    inProject = true;
+                }
+            } else if (depth == 4 && inLot && inProject) {
+                if (CAC.equals(ns) && "MainCommodityClassification".equals(name) && lotMainCpv == null) {
+                    captureText(TextTarget.LOT_MAIN_CPV);
+                } else if (CAC.equals(ns) && "AdditionalCommodityClassification".equals(name)) {
+                    captureText(TextTarget.LOT_ADDITIONAL_CPV);
+                }
+            }
+        }
+
+        private void endElement() {
+            if (textTarget != null) {
+                if (depth == textDepth) {
+                    storeText();
+                }
+                return;
+            }
+            if (inLot && depth == 2) {
+                endLot();
+            } else if (inProject && depth == (inLot ? 3 : 2)) {
+                inProject = false;
+            }
+        }
+
+        private boolean isLotScheme() {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attributeNs = reader.getAttributeNamespace(i);
+                if ((attributeNs == null || attributeNs.isEmpty())
+                        && "schemeName".equals(reader.getAttributeLocalName(i))) {
+                    return "Lot".equals(reader.getAttributeValue(i));
+                }
+            }
+            return false;
+        }
+
+        private void captureText(TextTarget target) {
+            textTarget = target;
+            textDepth = depth;
+            text.setLength(0);
+        }
+
+        private void storeText() {
+            String value = text.toString().trim();
+            switch (textTarget) {
+                case LANGUAGE:
+                    noticeLanguage = value;
+                    break;
+                case SDK_VERSION:
+                    sdkVersion = value;
+                    break;
+                case PROJECT_MAIN_CPV:
+                    projectMainCpv = value;
+                    break;
+                case PROJECT_ADDITIONAL_CPV:
+                    projectAdditionalCpvs.add(value);
+                    break;
+                case LOT_ID:
+                    lotId = value;
+                    break;
+                case LOT_MAIN_CPV:
+                    lotMainCpv = value;
+                    break;
+                case LOT_ADDITIONAL_CPV:
+                    lotAdditionalCpvs.add(value);
+                    break;
+            }
+            textTarget = null;
+        }
+
+        private void startLot() {
+            inLot = true;
+            lotHasIdElement = false;
+            lotId = null;
+            lotMainCpv = null;
+            lotAdditionalCpvs.clear();
+        }
+
+        private void endLot() {
+            inLot = false;
+            inProject = false;
+            // same as Notice.getLotIds(): only cac:ProcurementProjectLot[cbc:ID/@schemeName='Lot']
+            // elements with a non-empty ID are lots
+            if (!lotHasIdElement || lotId == null || lotId.isEmpty()) {
+                return;
+            }
+            lotIds.add(lotId);
+            if (!lotCpvs.containsKey(lotId)) {
+                List<String> cpvs = new ArrayList<>();
+                if (lotMainCpv != null) {
+                    cpvs.add(lotMainCpv);
+                }
+                cpvs.addAll(lotAdditionalCpvs);
+                lotCpvs.put(lotId, cpvs);
+            }
+        }
+    }
+}
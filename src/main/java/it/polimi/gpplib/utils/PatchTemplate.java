@@ -0,0 +1,149 @@
+package it.polimi.gpplib.utils;
+
+import it.polimi.gpplib.model.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled {@link it.polimi.gpplib.model.GppPatch} value: the literal text
+ * and the placeholders of the template, split once so that rendering is a
+ * single pass into a pre-sized buffer.
+ *
+ * <p>
+ * Placeholders are written {@code {name}}. The namespace prefixes of
+ * {@link Constants#NAMESPACE_MAP} (e.g. {@code {cac}}) are resolved at compile
+ * time; {@code {language}} and {@code {arg0}}, {@code {arg1}}, ... are filled in
+ * by {@link #render(String, String...)}. Any other placeholder, and any
+ * placeholder whose value is missing or null, is kept as it is. Values are
+ * inserted verbatim: placeholders inside them are not substituted.
+ */
+public final class PatchTemplate {
+
+    private static final char PREFIX = '{';
+    private static final char SUFFIX = '}';
+    private static final String ARG_PREFIX = "arg";
+
+    private static final int LITERAL = -2;
+    private static final int LANGUAGE = -1;
+
+    // texts[i] is a literal if slots[i] == LITERAL, otherwise the placeholder
+    // (with braces) of the slot: LANGUAGE or the index of the argument
+    private final String[] texts;
+    private final int[] slots;
+    private final int literalLength;
+
+    private PatchTemplate(String[] texts, int[] slots, int literalLength) {
+        this.texts = texts;
+        this.slots = slots;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Compiles a patch value.
+     *
+     * @throws NullPointerException if the value is null
+     */
+    public static PatchTemplate compile(String value) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int literalLength = 0;
+
+        int pos = 0;
+        while (pos < value.length()) {
+            int end = value.indexOf(SUFFIX, pos);
+            if (end < 0) {
+                literal.append(value, pos, value.length());
+                break;
+            }
+            // the innermost placeholder, if any
+            int start = value.lastIndexOf(PREFIX, end);
+            if (start < pos) {
+                literal.append(value, pos, end + 1);
+                pos = end + 1;
+                continue;
+            }
+            literal.append(value, pos, start);
+            String name = value.substring(start + 1, end);
+            String placeholder = value.substring(start, end + 1);
+            int slot = slotOf(name);
+            if (slot == LITERAL) {
+                String namespace = Constants.NAMESPACE_MAP.get(name);
+                literal.append(namespace != null ? namespace : placeholder);
+            } else {
+                if (literal.length() > 0) {
+                    literalLength += literal.length();
+                    texts.add(literal.toString());
+                    slots.add(LITERAL);
+                    literal.setLength(0);
+                }
+                texts.add(placeholder);
+                slots.add(slot);
+            }
+            pos = end + 1;
+        }
+        if (literal.length() > 0) {
+            literalLength += literal.length();
+            texts.add(literal.toString());
+            slots.add(LITERAL);
+        }
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new PatchTemplate(texts.toArray(new String[0]), slotArray, literalLength);
+    }
+
+    private static int slotOf(String name) {
+        if (name.equals(Constants.TAG_LANGUAGE)) {
+            return LANGUAGE;
+        }
+        if (name.length() > ARG_PREFIX.length() && name.startsWith(ARG_PREFIX)) {
+            int index = 0;
+            for (int i = ARG_PREFIX.length(); i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c < '0' || c > '9' || index > 1000) {
+                    return LITERAL;
+                }
+                index = index * 10 + (c - '0');
+            }
+            return index;
+        }
+        return LITERAL;
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param language the value of {@code {language}}
+     * @param args     the values of {@code {arg0}}, {@code {arg1}}, ...
+     * @return the rendered value
+     */
+    public String render(String language, String... args) {
+        int capacity = literalLength;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != LITERAL) {
+                String value = valueOf(slots[i], language, args);
+                capacity += value != null ? value.length() : texts[i].length();
+            }
+        }
+        StringBuilder out = new StringBuilder(capacity);
+        for (int i = 0; i < slots.length; i++) {
+            String value = valueOf(slots[i], language, args);
+            out.append(value != null ? value : texts[i]);
+        }
+        return out.toString();
+    }
+
+    private String valueOf(int slot, String language, String[] args) {
+        if (slot == LITERAL) {
+            return null;
+        }
+        if (slot == LANGUAGE) {
+            return language;
+        }
+        return slot < args.length ? args[slot] : null;
+    }
+}
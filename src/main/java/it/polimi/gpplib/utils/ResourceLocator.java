@@ -0,0 +1,74 @@
+package it.polimi.gpplib.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * Resolves the domain knowledge files: a path is first looked up on the
+ * classpath, as before, and then on the filesystem, so that an exported
+ * knowledge base can be loaded (and reloaded) without rebuilding the library.
+ */
+final class ResourceLocator {
+
+    private ResourceLocator() {
+    }
+
+    /**
+     * Opens the resource at the given path.
+     *
+     * @return the stream, or null if the path is neither a classpath resource nor
+     *         a regular file
+     */
+    static InputStream open(String path) throws IOException {
+        InputStream is = ResourceLocator.class.getClassLoader().getResourceAsStream(path);
+        if (is != null) {
+            return is;
+        }
+        Path file = toRegularFile(path);
+        return file != null ? Files.newInputStream(file) : null;
+    }
+
+    /**
+     * Returns whether {@link #open(String)} would find the path.
+     */
+    static boolean exists(String path) {
+        return ResourceLocator.class.getClassLoader().getResource(path) != null || toRegularFile(path) != null;
+    }
+
+    /**
+     * Returns the file that {@link #open(String)} reads for the given path: the
+     * classpath resource if it is an exploded file, or the filesystem path.
+     *
+     * @return the absolute file path, or null if the resource is not a file (e.g.
+     *         it is inside a jar) or does not exist
+     */
+    static Path findFile(String path) {
+        URL url = ResourceLocator.class.getClassLoader().getResource(path);
+        if (url != null) {
+            if (!"file".equals(url.getProtocol())) {
+                return null;
+            }
+            try {
+                return Path.of(url.toURI()).toAbsolutePath();
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+        Path file = toRegularFile(path);
+        return file != null ? file.toAbsolutePath() : null;
+    }
+
+    private static Path toRegularFile(String path) {
+        try {
+            Path file = Path.of(path);
+            return Files.isRegularFile(file) ? file : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package it.polimi.gpplib.utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Utils {
@@ -12,28 +13,84 @@ public class Utils {
      * zeros removed).
      */
     public static List<String> matchingCpvs(List<String> noticeCpvs, List<String> criteriaCpvs) {
+        return matchingCpvs(noticeCpvs, criteriaCpvs, cpvPrefixes(criteriaCpvs));
+    }
+
+    /**
+     * Same as {@link #matchingCpvs(List, List)}, with the criteria CPVs already
+     * trimmed by {@link #cpvPrefixes(List)}.
+     */
+    public static List<String> matchingCpvs(List<String> noticeCpvs, List<String> criteriaCpvs,
+            List<String> criteriaCpvPrefixes) {
         List<String> matchingCpvs = new ArrayList<>();
         for (String noticeCpv : noticeCpvs) {
-            for (String criteriaCpv : criteriaCpvs) {
-                if (noticeCpv.equals(criteriaCpv)) {
-                    matchingCpvs.add(noticeCpv);
-                    break;
-                }
-                // remove trailing zeros to look for child CPVs
-                String trimmedCriteriaCpv = criteriaCpv.replaceAll("0+$", "");
-                if (!trimmedCriteriaCpv.isEmpty() && noticeCpv.startsWith(trimmedCriteriaCpv)) {
-                    matchingCpvs.add(noticeCpv);
-                    break;
-                }
+            if (matchesAny(noticeCpv, criteriaCpvs, criteriaCpvPrefixes)) {
+                matchingCpvs.add(noticeCpv);
             }
         }
         return matchingCpvs;
     }
 
+    /**
+     * Returns the CPV code without its trailing zeros, i.e. the prefix shared by
+     * the code and all of its children.
+     */
+    public static String trimTrailingZeros(String cpv) {
+        int end = cpv.length();
+        while (end > 0 && cpv.charAt(end - 1) == '0') {
+            end--;
+        }
+        return cpv.substring(0, end);
+    }
+
+    /**
+     * Returns the criteria CPVs with their trailing zeros removed, in the same
+     * order, to be used with {@link #matchingCpvs(List, List, List)}.
+     */
+    public static List<String> cpvPrefixes(List<String> criteriaCpvs) {
+        if (criteriaCpvs == null) {
+            return List.of();
+        }
+        List<String> prefixes = new ArrayList<>(criteriaCpvs.size());
+        for (String criteriaCpv : criteriaCpvs) {
+            prefixes.add(criteriaCpv != null ? trimTrailingZeros(criteriaCpv) : null);
+        }
+        return Collections.unmodifiableList(prefixes);
+    }
+
     /**
      * Returns true if there is at least one matching CPV between the two lists.
      */
     public static boolean hasMatchingCpvs(List<String> noticeCpvs, List<String> criteriaCpvs) {
-        return !matchingCpvs(noticeCpvs, criteriaCpvs).isEmpty();
+        return hasMatchingCpvs(noticeCpvs, criteriaCpvs, cpvPrefixes(criteriaCpvs));
+    }
+
+    /**
+     * Same as {@link #hasMatchingCpvs(List, List)}, with the criteria CPVs already
+     * trimmed by {@link #cpvPrefixes(List)}.
+     */
+    public static boolean hasMatchingCpvs(List<String> noticeCpvs, List<String> criteriaCpvs,
+            List<String> criteriaCpvPrefixes) {
+        for (String noticeCpv : noticeCpvs) {
+            if (matchesAny(noticeCpv, criteriaCpvs, criteriaCpvPrefixes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(String noticeCpv, List<String> criteriaCpvs,
+            List<String> criteriaCpvPrefixes) {
+        for (int i = 0; i < criteriaCpvs.size(); i++) {
+            if (noticeCpv.equals(criteriaCpvs.get(i))) {
+                return true;
+            }
+            // trailing zeros are removed to look for child CPVs
+            String prefix = criteriaCpvPrefixes.get(i);
+            if (prefix != null && !prefix.isEmpty() && noticeCpv.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
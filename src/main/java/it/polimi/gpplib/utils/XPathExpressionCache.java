@@ -0,0 +1,123 @@
+package it.polimi.gpplib.utils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.polimi.gpplib.model.Constants;
+
+/**
+ * Bounded cache of compiled XPath expressions, keyed by the path string.
+ *
+ * <p>
+ * Neither {@link XPath} nor {@link XPathExpression} are thread-safe, so every
+ * thread gets its own LRU map of compiled expressions. Each per-thread map is
+ * warmed up with the fixed paths from {@link Constants} the first time the
+ * thread uses the cache. Hit/miss counters are shared across threads.
+ */
+final class XPathExpressionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(XPathExpressionCache.class);
+
+    static final int DEFAULT_MAX_ENTRIES_PER_THREAD = 256;
+
+    /** Paths evaluated on every analyze/apply call, compiled ahead of time. */
+    static final List<String> WARM_UP_PATHS = List.of(
+            Constants.PATH_LOT,
+            Constants.PATH_IN_LOT_ID,
+            Constants.PATH_IN_LOT_MAIN_CPV,
+            Constants.PATH_IN_LOT_ADDITIONAL_CPVS,
+            Constants.PATH_MAIN_CPV,
+            Constants.PATH_ADDITIONAL_CPVS,
+            Constants.PATH_NOTICE_LANGUAGE,
+            Constants.PATH_EFORMS_SDK_VERSION,
+            Constants.PATH_PROCUREMENT_PROJECT,
+            Constants.PATH_STRATEGIC_PROCUREMENT_NONE,
+            Constants.PATH_STRATEGIC_PROCUREMENT_ENV_IMP,
+            Constants.PATH_AWARD_CRITERION,
+            Constants.PATH_IN_AWARD_CRITERION_TYPE,
+            Constants.PATH_IN_AWARD_CRITERION_NAME,
+            Constants.PATH_IN_AWARD_CRITERION_DESCRIPTION,
+            Constants.PATH_IN_AWARD_CRITERION_WEIGHT);
+
+    private final XPathFactory xpathFactory;
+    private final NamespaceContext namespaceCtx;
+    private final int maxEntriesPerThread;
+
+    private final ThreadLocal<PerThreadCache> perThreadCache = ThreadLocal.withInitial(this::createPerThreadCache);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    XPathExpressionCache(XPathFactory xpathFactory, NamespaceContext namespaceCtx, int maxEntriesPerThread) {
+        this.xpathFactory = xpathFactory;
+        this.namespaceCtx = namespaceCtx;
+        this.maxEntriesPerThread = maxEntriesPerThread;
+    }
+
+    /**
+     * Returns the compiled expression for the given path, compiling it on the
+     * calling thread if it's not cached yet.
+     */
+    XPathExpression get(String path) throws XPathExpressionException {
+        PerThreadCache cache = perThreadCache.get();
+        XPathExpression expression = cache.expressions.get(path);
+        if (expression != null) {
+            hits.increment();
+            return expression;
+        }
+        misses.increment();
+        expression = cache.xpath.compile(path);
+        cache.expressions.put(path, expression);
+        return expression;
+    }
+
+    CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum());
+    }
+
+    private PerThreadCache createPerThreadCache() {
+        XPath xpath;
+        // the factory itself is not thread-safe either
+        synchronized (xpathFactory) {
+            xpath = xpathFactory.newXPath();
+        }
+        xpath.setNamespaceContext(namespaceCtx);
+        PerThreadCache cache = new PerThreadCache(xpath, maxEntriesPerThread);
+        for (String path : WARM_UP_PATHS) {
+            try {
+                cache.expressions.put(path, xpath.compile(path));
+            } catch (XPathExpressionException e) {
+                logger.warn("Failed to precompile XPath: {}", path, e);
+            }
+        }
+        logger.debug("Initialized XPath cache for thread '{}' with {} precompiled paths",
+                Thread.currentThread().getName(), cache.expressions.size());
+        return cache;
+    }
+
+    private static final class PerThreadCache {
+        private final XPath xpath;
+        private final Map<String, XPathExpression> expressions;
+
+        private PerThreadCache(XPath xpath, int maxEntries) {
+            this.xpath = xpath;
+            this.expressions = new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package it.polimi.gpplib.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * An XML fragment (e.g. the value of a suggested patch) together with its
+ * parsed form, so that it is parsed at most once however many times it is
+ * inserted into a notice.
+ *
+ * <p>
+ * The fragment is parsed lazily, on the first {@link #importInto(Document)}.
+ * The parsed form is not kept as a DOM, since DOM implementations don't
+ * guarantee that concurrent reads are safe (the JDK's deferred DOM builds
+ * nodes while they are read), but as an immutable tree of names and values
+ * from which every import creates new nodes. A fragment can therefore be shared
+ * between threads, and imports into different documents run concurrently.
+ */
+public final class XmlFragment {
+
+    private final String xml;
+
+    // parsed xml, set once by parse
+    private volatile Part root;
+
+    /**
+     * @throws NullPointerException if the xml is null
+     */
+    public XmlFragment(String xml) {
+        this.xml = Objects.requireNonNull(xml, "xml");
+    }
+
+    /**
+     * Returns the fragment as a string.
+     */
+    public String getXml() {
+        return xml;
+    }
+
+    /**
+     * Returns a copy of the root element of the fragment, owned by the given
+     * document but not inserted into it yet.
+     *
+     * @throws XmlUtils.XmlUtilsException if the fragment is not well-formed XML
+     */
+    public Node importInto(Document target) {
+        Part parsed = root;
+        if (parsed == null) {
+            parsed = parse();
+        }
+        return parsed.create(target);
+    }
+
+    private synchronized Part parse() {
+        if (root == null) {
+            root = Part.of(XmlUtils.loadDocument(xml).getDocumentElement());
+        }
+        return root;
+    }
+
+    /** An immutable parsed node. */
+    private abstract static class Part {
+
+        abstract Node create(Document target);
+
+        /**
+         * Returns the part of the given node, or null for the node types that are
+         * not kept (e.g. entity references, which the parser expands).
+         */
+        static Part of(Node node) {
+            switch (node.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    return ElementPart.of((Element) node);
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                case Node.COMMENT_NODE:
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                    return new LeafPart(node.getNodeType(), node.getNodeName(), node.getNodeValue());
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final class ElementPart extends Part {
+        private final String namespaceUri;
+        private final String qualifiedName;
+        // namespace, qualified name and value of each attribute
+        private final String[] attributes;
+        private final Part[] children;
+
+        private ElementPart(String namespaceUri, String qualifiedName, String[] attributes, Part[] children) {
+            this.namespaceUri = namespaceUri;
+            this.qualifiedName = qualifiedName;
+            this.attributes = attributes;
+            this.children = children;
+        }
+
+        static ElementPart of(Element element) {
+            NamedNodeMap attributeMap = element.getAttributes();
+            String[] attributes = new String[attributeMap.getLength() * 3];
+            for (int i = 0; i < attributeMap.getLength(); i++) {
+                Attr attribute = (Attr) attributeMap.item(i);
+                attributes[3 * i] = attribute.getNamespaceURI();
+                attributes[3 * i + 1] = attribute.getName();
+                attributes[3 * i + 2] = attribute.getValue();
+            }
+            List<Part> children = new ArrayList<>();
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                Part part = Part.of(child);
+                if (part != null) {
+                    children.add(part);
+                }
+            }
+            return new ElementPart(element.getNamespaceURI(), element.getTagName(), attributes,
+                    children.toArray(new Part[0]));
+        }
+
+        @Override
+        Node create(Document target) {
+            Element element = target.createElementNS(namespaceUri, qualifiedName);
+            for (int i = 0; i < attributes.length; i += 3) {
+                element.setAttributeNS(attributes[i], attributes[i + 1], attributes[i + 2]);
+            }
+            for (Part child : children) {
+                element.appendChild(child.create(target));
+            }
+            return element;
+        }
+    }
+
+    private static final class LeafPart extends Part {
+        private final short type;
+        private final String name;
+        private final String value;
+
+        private LeafPart(short type, String name, String value) {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        Node create(Document target) {
+            switch (type) {
+                case Node.TEXT_NODE:
+                    return target.createTextNode(value);
+                case Node.CDATA_SECTION_NODE:
+                    return target.createCDATASection(value);
+                case Node.COMMENT_NODE:
+                    return target.createComment(value);
+                default:
+                    return target.createProcessingInstruction(name, value);
+            }
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package it.polimi.gpplib.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -21,9 +36,11 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import javax.xml.XMLConstants;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,8 +51,56 @@ public class XmlUtils {
     private static final DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
     static {
         docFactory.setNamespaceAware(true);
+        // notices are self-contained, never go out to resolve DTDs or external
+        // entities (slow resolver I/O, and XXE)
+        docFactory.setXIncludeAware(false);
+        docFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        docFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        setFeatureIfSupported(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeatureIfSupported("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        setFeatureIfSupported("http://xml.org/sax/features/external-general-entities", false);
+        setFeatureIfSupported("http://xml.org/sax/features/external-parameter-entities", false);
     }
 
+    /** Any external entity that slips through resolves to nothing. */
+    private static final EntityResolver noOpEntityResolver = (publicId, systemId) -> new InputSource(
+            new StringReader(""));
+
+    private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    /**
+     * Identity transformers used for serialization, one per thread since they are
+     * not thread-safe. They are reset to their default output properties after
+     * every use.
+     */
+    private static final ThreadLocal<Transformer> identityTransformers = ThreadLocal.withInitial(() -> {
+        try {
+            synchronized (transformerFactory) {
+                return transformerFactory.newTransformer();
+            }
+        } catch (TransformerConfigurationException e) {
+            throw new IllegalStateException("Failed to create XML transformer", e);
+        }
+    });
+
+    /**
+     * DocumentBuilders are not thread-safe but are reusable after a reset, so
+     * every thread keeps its own.
+     */
+    private static final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(() -> {
+        try {
+            DocumentBuilder builder;
+            // the factory is not guaranteed to be thread-safe either
+            synchronized (docFactory) {
+                builder = docFactory.newDocumentBuilder();
+            }
+            builder.setEntityResolver(noOpEntityResolver);
+            return builder;
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create XML document builder", e);
+        }
+    });
+
     protected static final NamespaceContext namespaceCtx = new NamespaceContext() {
         @Override
         public String getNamespaceURI(String prefix) {
@@ -67,6 +132,9 @@ public class XmlUtils {
         }
     };
 
+    private static final XPathExpressionCache xpathCache = new XPathExpressionCache(xpathFactory, namespaceCtx,
+            XPathExpressionCache.DEFAULT_MAX_ENTRIES_PER_THREAD);
+
     public static class XmlUtilsException extends RuntimeException {
         public XmlUtilsException(String message, Throwable cause) {
             super(message, cause);
@@ -100,8 +168,7 @@ public class XmlUtils {
         logger.debug("Loading XML document from string (length: {} characters)",
                 xmlString != null ? xmlString.length() : 0);
         try {
-            DocumentBuilder builder = docFactory.newDocumentBuilder();
-            Document document = builder.parse(new InputSource(new StringReader(xmlString)));
+            Document document = parse(new InputSource(new StringReader(xmlString)));
             logger.debug("Successfully loaded XML document");
             return document;
         } catch (Exception e) {
@@ -110,6 +177,69 @@ public class XmlUtils {
         }
     }
 
+    /**
+     * Loads an XML document from a byte stream. The encoding is detected by the
+     * parser from the XML declaration (or the byte order mark), defaulting to
+     * UTF-8. The stream is not closed.
+     */
+    public static Document loadDocument(InputStream xmlStream) {
+        logger.debug("Loading XML document from stream");
+        if (xmlStream == null) {
+            throw new XmlUtilsException("XML stream must not be null");
+        }
+        try {
+            Document document = parse(new InputSource(xmlStream));
+            logger.debug("Successfully loaded XML document");
+            return document;
+        } catch (Exception e) {
+            logger.error("Failed to parse XML document", e);
+            throw new XmlUtilsException("Failed to parse XML document", e);
+        }
+    }
+
+    /**
+     * Loads an XML document from its encoded bytes, see
+     * {@link #loadDocument(InputStream)}.
+     */
+    public static Document loadDocument(byte[] xmlBytes) {
+        if (xmlBytes == null) {
+            throw new XmlUtilsException("XML bytes must not be null");
+        }
+        return loadDocument(new ByteArrayInputStream(xmlBytes));
+    }
+
+    /**
+     * Loads an XML document from the remaining bytes of the buffer without copying
+     * them, see {@link #loadDocument(InputStream)}. The buffer position is not
+     * changed.
+     */
+    public static Document loadDocument(ByteBuffer xmlBuffer) {
+        if (xmlBuffer == null) {
+            throw new XmlUtilsException("XML buffer must not be null");
+        }
+        return loadDocument(new ByteBufferInputStream(xmlBuffer));
+    }
+
+    /**
+     * Loads an XML document from a file, which is memory-mapped rather than read
+     * into the heap, see {@link #loadDocument(InputStream)}.
+     */
+    public static Document loadDocument(Path xmlFile) {
+        logger.debug("Loading XML document from file: {}", xmlFile);
+        if (xmlFile == null) {
+            throw new XmlUtilsException("XML file path must not be null");
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(xmlFile, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.error("Failed to read XML file: {}", xmlFile, e);
+            throw new XmlUtilsException("Failed to read XML file: " + xmlFile, e);
+        }
+        return loadDocument(mapped);
+    }
+
     /**
      * Loads an XML/XSD file from the classpath resources and returns it as a
      * Document.
@@ -121,8 +251,7 @@ public class XmlUtils {
             if (is == null) {
                 throw new XmlUtilsException("Resource not found: " + resourcePath);
             }
-            DocumentBuilder builder = docFactory.newDocumentBuilder();
-            Document document = builder.parse(is);
+            Document document = parse(new InputSource(is));
             logger.debug("Successfully loaded XML document from resource: {}", resourcePath);
             return document;
         } catch (Exception e) {
@@ -131,16 +260,40 @@ public class XmlUtils {
         }
     }
 
+    /**
+     * Parses the input with the calling thread's pooled DocumentBuilder, which is
+     * reset afterwards so no state leaks into the next parse.
+     */
+    private static Document parse(InputSource input) throws SAXException, IOException {
+        DocumentBuilder builder = documentBuilders.get();
+        try {
+            return builder.parse(input);
+        } finally {
+            builder.reset();
+            builder.setEntityResolver(noOpEntityResolver);
+        }
+    }
+
+    private static void setFeatureIfSupported(String feature, boolean value) {
+        try {
+            docFactory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            logger.warn("XML parser does not support feature {}", feature);
+        }
+    }
+
     /**
      * Returns a Node at the specified XPath from the root node.
      * If no node is found, it logs and throws an exception.
+     * Simple child-step paths are resolved by walking the DOM directly (see
+     * {@link DomPath}), everything else goes through XPath.
      */
     public static Node getNodeAtPath(Node root, String path) {
         logger.debug("Evaluating XPath: {} from root node", path);
         try {
-            javax.xml.xpath.XPath xpath = xpathFactory.newXPath();
-            xpath.setNamespaceContext(namespaceCtx);
-            Node result = (Node) xpath.evaluate(path, root, javax.xml.xpath.XPathConstants.NODE);
+            DomPath domPath = root != null ? DomPath.forPath(path) : null;
+            Node result = domPath != null ? domPath.selectFirst(root)
+                    : (Node) xpathCache.get(path).evaluate(root, javax.xml.xpath.XPathConstants.NODE);
             if (result != null) {
                 logger.debug("Found node at XPath: {}", path);
             } else {
@@ -169,17 +322,31 @@ public class XmlUtils {
     /**
      * Returns a NodeList at the specified XPath from the root node.
      * If no nodes are found, it logs an error and returns null.
+     * Simple child-step paths are resolved by walking the DOM directly (see
+     * {@link DomPath}), everything else goes through XPath.
      */
     public static NodeList getNodesAtPath(Node root, String path) {
         try {
-            javax.xml.xpath.XPath xpath = xpathFactory.newXPath();
-            xpath.setNamespaceContext(namespaceCtx);
-            return (NodeList) xpath.evaluate(path, root, javax.xml.xpath.XPathConstants.NODESET);
+            DomPath domPath = root != null ? DomPath.forPath(path) : null;
+            if (domPath != null) {
+                return domPath.selectNodeList(root);
+            }
+            return (NodeList) xpathCache.get(path).evaluate(root, javax.xml.xpath.XPathConstants.NODESET);
         } catch (Exception e) {
             throw new XmlUtilsException("Failed to evaluate XPath: " + path, e);
         }
     }
 
+    /**
+     * Returns the hit/miss counters of the compiled XPath expression cache used by
+     * {@link #getNodeAtPath(Node, String)} and
+     * {@link #getNodesAtPath(Node, String)} for paths that {@link DomPath} can't
+     * handle.
+     */
+    public static CacheStats getXPathCacheStats() {
+        return xpathCache.getStats();
+    }
+
     /**
      * Checks if a node exists at the specified XPath from the root node.
      * Returns true if the node exists, false otherwise.
@@ -198,15 +365,69 @@ public class XmlUtils {
      * This is useful for serializing the Document back to XML format.
      */
     public static String docToString(Document doc) {
+        StringWriter writer = new StringWriter();
+        writeDocument(doc, writer, true);
+        return writer.toString();
+    }
+
+    /**
+     * Serializes the document straight to the writer, without building the whole
+     * XML in memory first. The writer is not closed.
+     *
+     * @param indent whether to indent the output like {@link #docToString}
+     */
+    public static void writeDocument(Document doc, Writer writer, boolean indent) {
+        transform(doc, new StreamResult(writer), null, indent);
+    }
+
+    /**
+     * Serializes the document straight to the stream in the given charset (which
+     * is also declared in the XML declaration). The stream is not closed.
+     *
+     * @param indent whether to indent the output like {@link #docToString}
+     */
+    public static void writeDocument(Document doc, OutputStream out, Charset charset, boolean indent) {
+        transform(doc, new StreamResult(out), charset, indent);
+    }
+
+    private static void transform(Document doc, StreamResult result, Charset charset, boolean indent) {
+        Transformer transformer = identityTransformers.get();
         try {
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            StringWriter writer = new StringWriter();
-            transformer.transform(new DOMSource(doc), new StreamResult(writer));
-            return writer.toString();
+            transformer.setOutputProperty(OutputKeys.INDENT, indent ? "yes" : "no");
+            if (charset == null) {
+                transformer.transform(new DOMSource(doc), result);
+                return;
+            }
+            transformer.setOutputProperty(OutputKeys.ENCODING, charset.name());
+            if (isDeclaredEncoding(doc, charset)) {
+                transformer.transform(new DOMSource(doc), result);
+                return;
+            }
+            // a Document source is always written in the encoding it declares, so
+            // re-encoding means writing its top-level nodes one by one
+            if (!doc.getXmlStandalone()) {
+                transformer.setOutputProperty(OutputKeys.STANDALONE, "no");
+            }
+            for (Node child = doc.getFirstChild(); child != null; child = child.getNextSibling()) {
+                transformer.transform(new DOMSource(child), result);
+                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            }
         } catch (Exception e) {
             throw new XmlUtilsException("Failed to convert Document to XML string", e);
+        } finally {
+            transformer.reset();
+        }
+    }
+
+    private static boolean isDeclaredEncoding(Document doc, Charset charset) {
+        String declared = doc.getXmlEncoding();
+        if (declared == null) {
+            return true;
+        }
+        try {
+            return Charset.forName(declared).equals(charset);
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
 
@@ -304,6 +525,60 @@ public class XmlUtils {
         }
     }
 
+    /**
+     * Returns the first element child of the parent whose ordinal is greater than
+     * the ordinal of the given element, i.e. the node before which the element
+     * goes to keep the children in the order given by their names, or null if it
+     * goes at the end. Children whose name has no ordinal are skipped, and an
+     * element whose name has no ordinal goes at the end.
+     *
+     * @param ordinals the position of each element by {@link #getExpandedName(Node)
+     *                 expanded name}, e.g.
+     *                 {@link EFormsSdkWrapper#getProcurementProjectTypeOrdinals()}
+     */
+    static Node findNextInOrder(Node parent, Node newChild, Map<String, Integer> ordinals) {
+        Integer ordinal = ordinals.get(getExpandedName(newChild));
+        if (ordinal == null) {
+            return null;
+        }
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            Integer childOrdinal = ordinals.get(getExpandedName(child));
+            if (childOrdinal != null && childOrdinal > ordinal) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of a node as {@code {namespace}localName}, which does not
+     * depend on the prefix the document binds to the namespace ({@code {}} if it
+     * has no namespace).
+     */
+    public static String getExpandedName(Node node) {
+        String localName = node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+        String namespaceUri = node.getNamespaceURI();
+        return "{" + (namespaceUri != null ? namespaceUri : "") + "}" + localName;
+    }
+
+    /**
+     * Returns the expanded name (see {@link #getExpandedName(Node)}) of a name
+     * such as {@code cac:ProcurementProject}, resolving the prefix against
+     * {@link Constants#NAMESPACE_MAP}. A name with an unknown prefix is returned as
+     * it is.
+     */
+    public static String getExpandedName(String prefixedName) {
+        int colon = prefixedName.indexOf(':');
+        if (colon < 0) {
+            return "{}" + prefixedName;
+        }
+        String namespaceUri = Constants.NAMESPACE_MAP.get(prefixedName.substring(0, colon));
+        return namespaceUri != null ? "{" + namespaceUri + "}" + prefixedName.substring(colon + 1) : prefixedName;
+    }
+
     /**
      * Removes a node at the specified XPath from the given root node.
      * If the node is found, it will be removed from its parent.
@@ -357,7 +632,10 @@ public class XmlUtils {
         List<String> refElements = new ArrayList<>();
 
         try {
-            javax.xml.xpath.XPath xpath = xpathFactory.newXPath();
+            javax.xml.xpath.XPath xpath;
+            synchronized (xpathFactory) {
+                xpath = xpathFactory.newXPath();
+            }
             xpath.setNamespaceContext(namespaceCtx);
 
             // XPath to find the complexType with the specified name and its sequence
@@ -6,16 +6,26 @@ import org.w3c.dom.Node;
 import it.polimi.gpplib.model.Constants;
 import it.polimi.gpplib.model.GppAnalysisResult;
 import it.polimi.gpplib.model.Notice;
+import it.polimi.gpplib.model.NoticeFacts;
 import it.polimi.gpplib.model.SuggestedGppCriterion;
 import it.polimi.gpplib.model.SuggestedGppPatch;
+import it.polimi.gpplib.utils.GppResourceRegistry;
 import it.polimi.gpplib.utils.XmlUtils;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 public class DefaultGppNoticeAnalyzerTest {
 
+    // the domain knowledge and eForms SDK of the analyzer of setUp
+    private static final int SET_UP_RESOURCES = 2;
+
     DefaultGppNoticeAnalyzer analyzer;
 
     @org.junit.Before
@@ -27,6 +37,11 @@ public class DefaultGppNoticeAnalyzerTest {
         assertNotNull(analyzer);
     }
 
+    @org.junit.After
+    public void tearDown() {
+        analyzer.close();
+    }
+
     @Test
     public void testInit_errorLoadingDomainKnowledge() {
         String gppDocsPath = "invalid_path/test_gpp_criteria_docs.json";
@@ -55,6 +70,46 @@ public class DefaultGppNoticeAnalyzerTest {
         assertNotNull(analyzer);
     }
 
+    @Test
+    public void testInit_sharesDomainKnowledgeAndSdk() throws Exception {
+        String gppDocsPath = "domain_knowledge/real_gpp_criteria_docs.json";
+        String gppCriteriaPath = "domain_knowledge/real_gpp_criteria.json";
+        String gppPatchesPath = "domain_knowledge/real_gpp_patches_data.json";
+        releaseUnclosedAnalyzers();
+        int shared = GppResourceRegistry.getDefault().size();
+        try (DefaultGppNoticeAnalyzer other = new DefaultGppNoticeAnalyzer(gppDocsPath, gppCriteriaPath,
+                gppPatchesPath)) {
+            // same paths and SDK version as the analyzer of setUp
+            assertEquals(shared, GppResourceRegistry.getDefault().size());
+        }
+        assertEquals(shared, GppResourceRegistry.getDefault().size());
+    }
+
+    @Test
+    public void testInit_unclosedAnalyzerReleasedWhenCollected() throws Exception {
+        createUnclosedAnalyzer();
+        assertTrue(GppResourceRegistry.getDefault().size() > SET_UP_RESOURCES);
+
+        releaseUnclosedAnalyzers();
+        assertEquals(SET_UP_RESOURCES, GppResourceRegistry.getDefault().size());
+    }
+
+    /**
+     * Waits until the resources of the unclosed analyzers (of this test or of
+     * others) are released, so that only the ones of setUp are left.
+     */
+    private static void releaseUnclosedAnalyzers() throws InterruptedException {
+        for (int i = 0; i < 200 && GppResourceRegistry.getDefault().size() > SET_UP_RESOURCES; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+    }
+
+    private static void createUnclosedAnalyzer() {
+        new DefaultGppNoticeAnalyzer("domain_knowledge/test_gpp_criteria_docs.json",
+                "domain_knowledge/test_gpp_criteria.json", "domain_knowledge/test_gpp_patches_data.json");
+    }
+
     @Test
     public void testLoadNotice_invalidNotice() {
         try {
@@ -73,6 +128,89 @@ public class DefaultGppNoticeAnalyzerTest {
         assertEquals("ContractNotice", notice.getDoc().getDocumentElement().getLocalName());
     }
 
+    @Test
+    public void testLoadNotice_fromBytesStreamBufferAndPath() throws Exception {
+        String noticeXml = XmlUtils.getAsXmlString("test_notices/test_notice.xml");
+        byte[] bytes = noticeXml.getBytes(StandardCharsets.UTF_8);
+        Notice expected = analyzer.loadNotice(noticeXml);
+
+        Notice fromBytes = analyzer.loadNotice(bytes);
+        Notice fromStream = analyzer.loadNotice(new ByteArrayInputStream(bytes));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        Notice fromBuffer = analyzer.loadNotice(direct);
+        assertEquals("buffer position must not move", 0, direct.position());
+
+        Path file = Files.createTempFile("notice", ".xml");
+        Notice fromPath;
+        try {
+            Files.write(file, bytes);
+            fromPath = analyzer.loadNotice(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        for (Notice notice : List.of(fromBytes, fromStream, fromBuffer, fromPath)) {
+            assertEquals(expected.getLotIds(), notice.getLotIds());
+            assertEquals(expected.getAllProcurementProjectCpvs(), notice.getAllProcurementProjectCpvs());
+            assertEquals(expected.toXmlString(), notice.toXmlString());
+        }
+    }
+
+    @Test
+    public void testLoadNotice_invalidBytesAndMissingFile() {
+        try {
+            analyzer.loadNotice("<invalid...".getBytes(StandardCharsets.UTF_8));
+            fail("Expected GppBadRequestException");
+        } catch (GppBadRequestException ex) {
+            assertEquals("Invalid notice xml: Failed to parse XML document", ex.getMessage());
+        }
+        Path missing = Path.of("does_not_exist", "notice.xml");
+        try {
+            analyzer.loadNotice(missing);
+            fail("Expected GppBadRequestException");
+        } catch (GppBadRequestException ex) {
+            assertEquals("Invalid notice xml: Failed to read XML file: " + missing, ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testAnalyzeNoticeFacts_matchesNotice() {
+        for (String resource : List.of("test_notices/test_notice.xml", "test_notices/german_furniture.xml")) {
+            String noticeXml = XmlUtils.getAsXmlString(resource);
+            GppAnalysisResult expected = analyzer.analyzeNotice(analyzer.loadNotice(noticeXml));
+            NoticeFacts facts = analyzer
+                    .loadNoticeFacts(new ByteArrayInputStream(noticeXml.getBytes(StandardCharsets.UTF_8)));
+            GppAnalysisResult actual = analyzer.analyzeNoticeFacts(facts);
+
+            assertEquals(new java.util.HashSet<>(expected.getRelevantGppDocuments()),
+                    new java.util.HashSet<>(actual.getRelevantGppDocuments()));
+            assertEquals(expected.getSuggestedGppCriteria().size(), actual.getSuggestedGppCriteria().size());
+            for (int i = 0; i < expected.getSuggestedGppCriteria().size(); i++) {
+                SuggestedGppCriterion e = expected.getSuggestedGppCriteria().get(i);
+                SuggestedGppCriterion a = actual.getSuggestedGppCriteria().get(i);
+                assertEquals(e.getId(), a.getId());
+                assertEquals(e.getLotId(), a.getLotId());
+                assertEquals(e.getMatchingCpvCodes(), a.getMatchingCpvCodes());
+            }
+        }
+    }
+
+    @Test
+    public void testAnalyzeNoticeFacts_nullFactsAndInvalidXml() {
+        try {
+            analyzer.analyzeNoticeFacts(null);
+            fail("Expected GppBadRequestException");
+        } catch (GppBadRequestException ex) {
+            assertEquals("Notice facts must not be null", ex.getMessage());
+        }
+        try {
+            analyzer.loadNoticeFacts(new ByteArrayInputStream("<invalid...".getBytes(StandardCharsets.UTF_8)));
+            fail("Expected GppBadRequestException");
+        } catch (GppBadRequestException ex) {
+            assertEquals("Invalid notice xml: Failed to parse XML document", ex.getMessage());
+        }
+    }
+
     @Test
     public void testAnalyzeNotice_invalidNotice() {
         try {
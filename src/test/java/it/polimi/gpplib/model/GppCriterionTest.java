@@ -124,4 +124,20 @@ public class GppCriterionTest {
         assertEquals("comprehensive", criterion.getFormattedAmbitionLevel());
     }
 
+    @Test
+    public void testGetRelevantCpvPrefixes() throws Exception {
+        GppCriterion criterion = new GppCriterion(
+                "doc", "eu", "cat", "type", "core", "ID1", "name", Arrays.asList("39100000", "45233293"), "impact",
+                "desc", "selType");
+        assertEquals(List.of("391", "45233293"), criterion.getRelevantCpvPrefixes());
+        assertSame(criterion.getRelevantCpvPrefixes(), criterion.getRelevantCpvPrefixes());
+
+        criterion.setRelevantCpvCodes(Arrays.asList("12340000"));
+        assertEquals(List.of("1234"), criterion.getRelevantCpvPrefixes());
+        assertTrue(criterion.isApplicable(List.of("12345678"), "core"));
+
+        String json = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(criterion);
+        assertFalse(json.contains("relevantCpvPrefixes"));
+    }
+
 }
@@ -85,4 +85,15 @@ public class GppDocumentTest {
         assertTrue(str.contains("Source"));
         assertTrue(str.contains("11111111"));
     }
+
+    @Test
+    public void testGetRelevantCpvPrefixes() {
+        GppDocument doc = new GppDocument("Name", "Source", "Ref", null, Arrays.asList("39100000"), "Summary");
+        assertEquals(List.of("391"), doc.getRelevantCpvPrefixes());
+        assertTrue(doc.isApplicable(List.of("39130000")));
+
+        doc.setRelevantCpvCodes(null);
+        assertEquals(List.of(), doc.getRelevantCpvPrefixes());
+    }
+
 }
@@ -26,6 +26,19 @@ public class GppPatchTest {
         assertEquals("<xml>value</xml>", patch.getValue());
     }
 
+    @Test
+    public void testGetTemplate() {
+        GppPatch patch = new GppPatch();
+        assertNull(patch.getTemplate());
+
+        patch.setValue("<cbc:Name>{arg0}</cbc:Name>");
+        assertSame(patch.getTemplate(), patch.getTemplate());
+        assertEquals("<cbc:Name>first</cbc:Name>", patch.getTemplate().render("EN", "first"));
+
+        patch.setValue("<cbc:Note>{arg0}</cbc:Note>");
+        assertEquals("<cbc:Note>first</cbc:Note>", patch.getTemplate().render("EN", "first"));
+    }
+
     @Test
     public void testAllArgsConstructor() {
         List<String> btIds = Collections.singletonList("BT-805-Lot");
@@ -0,0 +1,76 @@
+package it.polimi.gpplib.model;
+
+import it.polimi.gpplib.utils.XmlUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class NoticeFactsTest {
+
+    @Test
+    public void testFromNotice() {
+        Notice notice = new Notice(XmlUtils.getAsXmlString("test_notices/test_notice.xml"));
+        NoticeFacts facts = NoticeFacts.fromNotice(notice);
+
+        assertEquals(notice.getNoticeLanguage(), facts.getNoticeLanguage());
+        assertEquals(notice.getEFormsSdkVersion(), facts.getEFormsSdkVersion());
+        assertEquals(notice.getAllProcurementProjectCpvs(), facts.getAllProcurementProjectCpvs());
+        assertEquals(notice.getLotIds(), facts.getLotIds());
+        for (String lotId : notice.getLotIds()) {
+            assertEquals(notice.getAllLotCpvs(lotId), facts.getAllLotCpvs(lotId));
+        }
+        assertEquals(List.of("24210000", "33192000", "33190000"), facts.getAllLotCpvs("lot-0001"));
+    }
+
+    @Test
+    public void testIsImmutable() {
+        List<String> projectCpvs = new ArrayList<>(List.of("39000000"));
+        List<String> lotIds = new ArrayList<>(List.of("LOT-0001"));
+        Map<String, List<String>> lotCpvs = new LinkedHashMap<>();
+        lotCpvs.put("LOT-0001", new ArrayList<>(List.of("39100000")));
+        NoticeFacts facts = new NoticeFacts("ENG", "eforms-sdk-1.13", projectCpvs, lotIds, lotCpvs);
+
+        projectCpvs.add("45000000");
+        lotIds.add("LOT-0002");
+        lotCpvs.get("LOT-0001").add("45000000");
+        lotCpvs.put("LOT-0002", List.of("45000000"));
+
+        assertEquals(List.of("39000000"), facts.getAllProcurementProjectCpvs());
+        assertEquals(List.of("LOT-0001"), facts.getLotIds());
+        assertEquals(List.of("39100000"), facts.getAllLotCpvs("LOT-0001"));
+        assertTrue(facts.getAllLotCpvs("LOT-0002").isEmpty());
+        try {
+            facts.getLotIds().add("LOT-0003");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLotLookup_caseInsensitiveFirstWins() {
+        Map<String, List<String>> lotCpvs = new LinkedHashMap<>();
+        lotCpvs.put("LOT-0001", List.of("39100000"));
+        lotCpvs.put("lot-0001", List.of("45000000"));
+        NoticeFacts facts = new NoticeFacts(null, null, null, List.of("LOT-0001", "lot-0001"), lotCpvs);
+
+        assertEquals(List.of("39100000"), facts.getAllLotCpvs("Lot-0001"));
+        assertTrue(facts.getAllLotCpvs(null).isEmpty());
+        assertTrue(facts.getAllProcurementProjectCpvs().isEmpty());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        NoticeFacts a = new NoticeFacts("ENG", "1.13", List.of("1"), List.of("L1"), Map.of("L1", List.of("2")));
+        NoticeFacts b = new NoticeFacts("ENG", "1.13", List.of("1"), List.of("L1"), Map.of("L1", List.of("2")));
+        NoticeFacts c = new NoticeFacts("ENG", "1.13", List.of("1"), List.of("L1"), Map.of("l1", List.of("2")));
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+    }
+}
@@ -5,6 +5,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.w3c.dom.Node;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -108,6 +111,136 @@ public class NoticeTest {
         assertTrue(xml.contains("<cac:ProcurementProjectLot"));
     }
 
+    @Test
+    public void testWriteTo_writerMatchesToXmlString() {
+        StringWriter writer = new StringWriter();
+        notice.writeTo(writer);
+        assertEquals(notice.toXmlString(), writer.toString());
+    }
+
+    @Test
+    public void testWriteTo_outputStreamWithCharset() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        notice.writeTo(out, StandardCharsets.UTF_8);
+        assertEquals(notice.toXmlString(), out.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream latin1 = new ByteArrayOutputStream();
+        notice.writeTo(latin1, StandardCharsets.ISO_8859_1);
+        String latin1Xml = latin1.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(latin1Xml.startsWith("<?xml version=\"1.0\" encoding=\"ISO-8859-1\""));
+        assertEquals(notice.getProcurementProjectMainCpv(), new Notice(latin1Xml).getProcurementProjectMainCpv());
+
+        Notice accented = new Notice("<?xml version=\"1.0\" encoding=\"UTF-8\"?><r>\u00e9\u20ac</r>");
+        ByteArrayOutputStream accentedOut = new ByteArrayOutputStream();
+        accented.writeTo(accentedOut, StandardCharsets.ISO_8859_1, false);
+        assertEquals("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"no\"?><r>\u00e9&#8364;</r>",
+                accentedOut.toString(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testWriteTo_withoutIndentation() {
+        StringWriter writer = new StringWriter();
+        notice.writeTo(writer, false);
+        String compact = writer.toString();
+        assertTrue(compact.length() < notice.toXmlString().length());
+        Notice reloaded = new Notice(compact);
+        assertEquals(notice.getLotIds(), reloaded.getLotIds());
+        assertEquals(notice.getAllLotCpvs("LOT-0001"), reloaded.getAllLotCpvs("LOT-0001"));
+        // indentation is restored for the next caller on the same thread
+        assertEquals(notice.toXmlString(), XmlUtils.docToString(notice.getDoc()));
+    }
+
+    @Test
+    public void testGetLotNode_caseInsensitiveAndCached() {
+        Node lot = notice.getLotNode("LOT-0001");
+        assertNotNull(lot);
+        assertSame(lot, notice.getLotNode("lot-0001"));
+        assertNull(notice.getLotNode("LOT-9999"));
+        assertNull(notice.getLotNode(null));
+    }
+
+    @Test
+    public void testGetLotNode_followsDomChanges() {
+        Node lot1 = notice.getLotNode("LOT-0001");
+        Node root = notice.getDoc().getDocumentElement();
+
+        // renamed lot
+        Node id = XmlUtils.getNodeAtPath(lot1, Constants.PATH_IN_LOT_ID);
+        id.setTextContent("LOT-0100");
+        assertNull(notice.getLotNode("LOT-0001"));
+        assertSame(lot1, notice.getLotNode("LOT-0100"));
+        assertTrue(notice.getLotIds().contains("LOT-0100"));
+
+        // added lot, with a duplicate ID: the first one in document order wins
+        Node copy = lot1.cloneNode(true);
+        root.appendChild(copy);
+        Node newLot = lot1.cloneNode(true);
+        XmlUtils.getNodeAtPath(newLot, Constants.PATH_IN_LOT_ID).setTextContent("LOT-0200");
+        root.appendChild(newLot);
+        assertSame(newLot, notice.getLotNode("LOT-0200"));
+        assertSame(lot1, notice.getLotNode("LOT-0100"));
+
+        // removed lot
+        root.removeChild(lot1);
+        assertSame(copy, notice.getLotNode("LOT-0100"));
+        root.removeChild(copy);
+        assertNull(notice.getLotNode("LOT-0100"));
+        assertFalse(notice.getLotIds().contains("LOT-0100"));
+    }
+
+    @Test
+    public void testDerivedFacts_memoizedUntilMarkModified() {
+        List<String> projectCpvs = notice.getAllProcurementProjectCpvs();
+        List<String> lotCpvs = notice.getAllLotCpvs("LOT-0001");
+        String language = notice.getNoticeLanguage();
+        assertEquals(projectCpvs, notice.getAllProcurementProjectCpvs());
+        assertEquals(lotCpvs, notice.getAllLotCpvs("lot-0001"));
+
+        // changes made without markModified are not seen
+        Node root = notice.getDoc().getDocumentElement();
+        XmlUtils.getNodeAtPath(root, Constants.PATH_NOTICE_LANGUAGE).setTextContent("ITA");
+        XmlUtils.getNodeAtPath(root, Constants.PATH_MAIN_CPV).setTextContent("39000000");
+        assertEquals(language, notice.getNoticeLanguage());
+        assertEquals(projectCpvs, notice.getAllProcurementProjectCpvs());
+
+        notice.markModified();
+        assertEquals("ITA", notice.getNoticeLanguage());
+        assertEquals("39000000", notice.getAllProcurementProjectCpvs().get(0));
+        assertEquals(lotCpvs, notice.getAllLotCpvs("LOT-0001"));
+    }
+
+    @Test
+    public void testDerivedFacts_returnCopies() {
+        List<String> lotCpvs = notice.getAllLotCpvs("LOT-0001");
+        List<String> projectCpvs = notice.getAllProcurementProjectCpvs();
+        lotCpvs.add("45000000");
+        projectCpvs.clear();
+        assertFalse(notice.getAllLotCpvs("LOT-0001").contains("45000000"));
+        assertFalse(notice.getAllProcurementProjectCpvs().isEmpty());
+    }
+
+    @Test
+    public void testCopy_isDeepAndIndependent() {
+        for (String resource : List.of("test_notices/test_notice.xml", "notices_furniture/00154896_2025.xml")) {
+            Notice original = new Notice(XmlUtils.getAsXmlString(resource));
+            Notice copy = original.copy();
+
+            assertNotSame(original.getDoc(), copy.getDoc());
+            assertEquals(original.toXmlString(), copy.toXmlString());
+            assertEquals(original.getLotIds(), copy.getLotIds());
+            assertEquals(original.getNoticeLanguage(), copy.getNoticeLanguage());
+        }
+
+        Notice copy = notice.copy();
+        Node lot = copy.getLotNode("LOT-0001");
+        assertNotSame(notice.getLotNode("LOT-0001"), lot);
+        lot.getParentNode().removeChild(lot);
+        copy.markModified();
+        assertFalse(copy.getLotIds().contains("LOT-0001"));
+        assertTrue(notice.getLotIds().contains("LOT-0001"));
+        assertNotNull(notice.getLotNode("LOT-0001"));
+    }
+
     @Test
     public void testToString() {
         String str = notice.toString();
@@ -2,6 +2,10 @@ package it.polimi.gpplib.model;
 
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.polimi.gpplib.utils.XmlFragment;
+
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -92,6 +96,73 @@ public class SuggestedGppPatchTest {
         assertNotEquals(patch1, patch3);
     }
 
+    @Test
+    public void testHashCode_ignoresDescription() {
+        List<String> btIds = Arrays.asList("BT-1", "BT-2");
+        SuggestedGppPatch patch1 = new SuggestedGppPatch(
+                "Patch Name", btIds, "Depends Patch", "some/path", "<xml/>", "add", "desc", "LOT-1");
+        SuggestedGppPatch patch2 = new SuggestedGppPatch(
+                "Patch Name", btIds, "Depends Patch", "some/path", "<xml/>", "add", "other desc", "LOT-1");
+
+        assertEquals(patch1, patch2);
+        assertEquals(patch1.hashCode(), patch2.hashCode());
+    }
+
+    @Test
+    public void testHashCode_resetBySetters() {
+        List<String> btIds = Arrays.asList("BT-1", "BT-2");
+        SuggestedGppPatch patch1 = new SuggestedGppPatch(
+                "Patch Name", btIds, "Depends Patch", "some/path", "<xml/>", "add", "desc", "LOT-1");
+        SuggestedGppPatch patch2 = new SuggestedGppPatch(
+                "Patch Name", btIds, "Depends Patch", "some/path", "<other/>", "add", "desc", "LOT-1");
+        int hash2 = patch2.hashCode();
+        assertNotEquals(patch1, patch2);
+
+        patch1.hashCode();
+        patch1.setValue("<other/>");
+        assertEquals(hash2, patch1.hashCode());
+        assertEquals(patch1, patch2);
+    }
+
+    @Test
+    public void testHashCode_resetBySetLotId() {
+        SuggestedGppPatch patch1 = new SuggestedGppPatch(
+                "Patch Name", null, null, "some/path", "<xml/>", "add", "desc", "LOT-1");
+        SuggestedGppPatch patch2 = new SuggestedGppPatch(
+                "Patch Name", null, null, "some/path", "<xml/>", "add", "desc", "LOT-2");
+        int hash2 = patch2.hashCode();
+
+        patch1.hashCode();
+        patch1.setLotId("LOT-2");
+        assertEquals(hash2, patch1.hashCode());
+        assertEquals(patch1, patch2);
+        assertTrue(new java.util.HashSet<>(List.of(patch2)).contains(patch1));
+    }
+
+    @Test
+    public void testBtIds_copied() {
+        List<String> btIds = new java.util.ArrayList<>(Arrays.asList("BT-1", null));
+        SuggestedGppPatch patch = new SuggestedGppPatch("N", btIds, null, null, null, null, null, null);
+        SuggestedGppPatch same = new SuggestedGppPatch("N", Arrays.asList("BT-1", null), null, null, null, null,
+                null, null);
+        int hash = patch.hashCode();
+
+        btIds.add("BT-2");
+        assertEquals(Arrays.asList("BT-1", null), patch.getBtIds());
+        assertEquals(hash, patch.hashCode());
+        assertEquals(same, patch);
+        try {
+            patch.getBtIds().add("BT-2");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        patch.setBtIds(btIds);
+        btIds.clear();
+        assertEquals(Arrays.asList("BT-1", null, "BT-2"), patch.getBtIds());
+    }
+
     @Test
     public void testEquals_reflexive() {
         List<String> btIds = Arrays.asList("BT-1", "BT-2");
@@ -217,4 +288,39 @@ public class SuggestedGppPatchTest {
         SuggestedGppPatch d = new SuggestedGppPatch("N", null, null, null, null, null, null, "B");
         assertNotEquals(c, d);
     }
+
+    @Test
+    public void testGetValueFragment() {
+        SuggestedGppPatch patch = new SuggestedGppPatch();
+        assertNull(patch.getValueFragment());
+
+        patch.setValue("<a/>");
+        assertSame(patch.getValueFragment(), patch.getValueFragment());
+        assertEquals("<a/>", patch.getValueFragment().getXml());
+
+        patch.setValue("<b/>");
+        assertEquals("<b/>", patch.getValueFragment().getXml());
+    }
+
+    @Test
+    public void testSetValueFragment() {
+        SuggestedGppPatch patch = new SuggestedGppPatch("N", null, null, null, "<a/>", null, null, null);
+        int hash = patch.hashCode();
+        XmlFragment fragment = new XmlFragment("<b/>");
+        patch.setValueFragment(fragment);
+
+        assertEquals("<b/>", patch.getValue());
+        assertSame(fragment, patch.getValueFragment());
+        assertEquals(new SuggestedGppPatch("N", null, null, null, "<b/>", null, null, null), patch);
+        assertNotEquals(hash, patch.hashCode());
+    }
+
+    @Test
+    public void testJson_valueFragmentNotSerialized() throws Exception {
+        SuggestedGppPatch patch = new SuggestedGppPatch("N", null, null, null, "<a/>", null, null, null);
+        patch.getValueFragment();
+        String json = new ObjectMapper().writeValueAsString(patch);
+        assertFalse(json.contains("valueFragment"));
+        assertTrue(json.contains("\"value\":\"<a/>\""));
+    }
 }
@@ -0,0 +1,72 @@
+package it.polimi.gpplib.utils;
+
+import org.junit.Test;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import it.polimi.gpplib.model.Constants;
+import it.polimi.gpplib.model.Notice;
+
+import static org.junit.Assert.*;
+
+public class AwardWeightSnapshotTest {
+
+    @Test
+    public void testCapture_matchesNoticeCriteria() {
+        for (String resource : new String[] { "test_notices/polish_furniture.xml",
+                "notices_furniture/00154896_2025.xml" }) {
+            Notice notice = new Notice(XmlUtils.getAsXmlString(resource));
+            AwardWeightSnapshot snapshot = AwardWeightSnapshot.capture(notice);
+
+            for (String lotId : notice.getLotIds()) {
+                NodeList criteria = XmlUtils.getNodesAtPath(notice.getLotNode(lotId), Constants.PATH_AWARD_CRITERION);
+                for (int i = 0; i < criteria.getLength(); i++) {
+                    String name = XmlUtils.getNodeValueAtPath(criteria.item(i),
+                            Constants.PATH_IN_AWARD_CRITERION_NAME);
+                    assertTrue(resource + " " + lotId + " " + name, snapshot.hasCriterion(lotId, name));
+                    assertTrue(snapshot.hasCriterion(lotId.toLowerCase(), name));
+                }
+                assertFalse(snapshot.hasCriterion(lotId, "No such criterion"));
+            }
+        }
+    }
+
+    @Test
+    public void testCapture_weightsAndFirstCriterionWins() {
+        Notice notice = new Notice(XmlUtils.getAsXmlString("notices_furniture/00154896_2025.xml"));
+        String lotId = notice.getLotIds().get(0);
+        NodeList criteria = XmlUtils.getNodesAtPath(notice.getLotNode(lotId), Constants.PATH_AWARD_CRITERION);
+        assertTrue(criteria.getLength() > 0);
+        Node criterion = criteria.item(0);
+        String name = XmlUtils.getNodeValueAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_NAME);
+        XmlUtils.getNodeAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_WEIGHT).setTextContent(" 42 ");
+
+        // a second criterion with the same name and a different weight
+        Node duplicate = criterion.cloneNode(true);
+        XmlUtils.getNodeAtPath(duplicate, Constants.PATH_IN_AWARD_CRITERION_WEIGHT).setTextContent("7");
+        criterion.getParentNode().appendChild(duplicate);
+
+        AwardWeightSnapshot snapshot = AwardWeightSnapshot.capture(notice);
+        assertEquals(Integer.valueOf(42), snapshot.getWeight(lotId, name));
+
+        // the snapshot is not affected by later changes
+        XmlUtils.getNodeAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_WEIGHT)
+                .setTextContent(Constants.PLACEHOLDER_WEIGHT);
+        assertEquals(Integer.valueOf(42), snapshot.getWeight(lotId, name));
+    }
+
+    @Test
+    public void testCapture_criterionWithoutNumericWeightStillExists() {
+        Notice notice = new Notice(XmlUtils.getAsXmlString("notices_furniture/00154896_2025.xml"));
+        String lotId = notice.getLotIds().get(0);
+        Node criterion = XmlUtils.getNodeAtPath(notice.getLotNode(lotId), Constants.PATH_AWARD_CRITERION);
+        String name = XmlUtils.getNodeValueAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_NAME);
+        XmlUtils.getNodeAtPath(criterion, Constants.PATH_IN_AWARD_CRITERION_WEIGHT).setTextContent("n/a");
+
+        AwardWeightSnapshot snapshot = AwardWeightSnapshot.capture(notice);
+        assertTrue(snapshot.hasCriterion(lotId, name));
+        assertNull(snapshot.getWeight(lotId, name));
+        assertFalse(snapshot.hasCriterion("LOT-9999", name));
+        assertNull(snapshot.getWeight(null, name));
+    }
+}
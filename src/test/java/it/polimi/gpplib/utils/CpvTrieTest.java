@@ -0,0 +1,103 @@
+package it.polimi.gpplib.utils;
+
+import it.polimi.gpplib.model.GppCriterion;
+import it.polimi.gpplib.model.GppDocument;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CpvTrieTest {
+
+    @Test
+    public void testFindMatching_exactAndChildMatches() {
+        List<List<String>> items = List.of(
+                List.of("39100000"),
+                List.of("45233293"),
+                List.of("12340000", "39144444"),
+                List.of("99999999"));
+        CpvTrie<List<String>> trie = CpvTrie.build(items, item -> item);
+
+        assertEquals(List.of(items.get(0), items.get(2)), trie.findMatching(List.of("39144444")));
+        assertEquals(List.of(items.get(1)), trie.findMatching(List.of("45233293")));
+        assertEquals(List.of(items.get(0), items.get(1), items.get(2)),
+                trie.findMatching(List.of("45233293", "39100000", "12345678")));
+        assertTrue(trie.findMatching(List.of("45233290")).isEmpty());
+        assertTrue(trie.findMatching(List.of()).isEmpty());
+        assertEquals(4, trie.size());
+    }
+
+    @Test
+    public void testFindMatching_parentDoesNotMatchChildCriteria() {
+        List<List<String>> items = List.of(List.of("39140000"));
+        CpvTrie<List<String>> trie = CpvTrie.build(items, item -> item);
+
+        assertTrue(trie.findMatching(List.of("39100000")).isEmpty());
+        assertEquals(items, trie.findMatching(List.of("39141000")));
+    }
+
+    @Test
+    public void testFindMatching_zeroCodesOnlyMatchExactly() {
+        List<List<String>> items = List.of(List.of("00000000"), List.of(), Arrays.asList("", null));
+        CpvTrie<List<String>> trie = CpvTrie.build(items, item -> item.isEmpty() ? null : item);
+
+        assertEquals(List.of(items.get(0)), trie.findMatching(List.of("00000000")));
+        assertTrue(trie.findMatching(List.of("00000001")).isEmpty());
+        assertEquals(List.of(items.get(2)), trie.findMatching(List.of("")));
+        assertTrue(trie.findMatching(Arrays.asList((String) null)).isEmpty());
+    }
+
+    @Test
+    public void testFindMatching_nonDigitCodes() {
+        List<List<String>> items = List.of(List.of("3910-0"), List.of("39100000"));
+        CpvTrie<List<String>> trie = CpvTrie.build(items, item -> item);
+
+        assertEquals(List.of(items.get(0), items.get(1)), trie.findMatching(List.of("3910-01")));
+    }
+
+    @Test
+    public void testFindMatching_sameAsLinearScanOnRealCatalog() throws Exception {
+        List<GppCriterion> criteria = new GppCriteriaLoader("domain_knowledge/real_gpp_criteria.json")
+                .loadGppCriteria();
+        List<GppDocument> docs = new GppDocumentsLoader("domain_knowledge/real_gpp_criteria_docs.json")
+                .loadGppDocuments();
+        CpvTrie<GppCriterion> criteriaTrie = CpvTrie.build(criteria, GppCriterion::getRelevantCpvCodes);
+        CpvTrie<GppDocument> docsTrie = CpvTrie.build(docs, GppDocument::getRelevantCpvCodes);
+
+        // every relevant code, its parents and a child of it
+        Set<String> noticeCpvs = new LinkedHashSet<>();
+        for (GppCriterion criterion : criteria) {
+            for (String cpv : criterion.getRelevantCpvCodes()) {
+                noticeCpvs.add(cpv);
+                noticeCpvs.add(cpv.substring(0, 2) + "000000");
+                noticeCpvs.add(cpv.substring(0, 4) + "0000");
+                noticeCpvs.add(cpv.substring(0, 7) + "1");
+            }
+        }
+        noticeCpvs.add("99999999");
+        assertFalse(criteria.isEmpty());
+
+        for (String noticeCpv : noticeCpvs) {
+            List<String> cpvs = List.of(noticeCpv);
+            List<GppCriterion> expectedCriteria = new ArrayList<>();
+            for (GppCriterion criterion : criteria) {
+                if (Utils.hasMatchingCpvs(cpvs, criterion.getRelevantCpvCodes())) {
+                    expectedCriteria.add(criterion);
+                }
+            }
+            List<GppDocument> expectedDocs = new ArrayList<>();
+            for (GppDocument doc : docs) {
+                if (doc.isApplicable(cpvs)) {
+                    expectedDocs.add(doc);
+                }
+            }
+            assertEquals(noticeCpv, expectedCriteria, criteriaTrie.findMatching(cpvs));
+            assertEquals(noticeCpv, expectedDocs, docsTrie.findMatching(cpvs));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package it.polimi.gpplib.utils;
+
+import java.util.List;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import it.polimi.gpplib.model.Constants;
+
+import static org.junit.Assert.*;
+
+public class DomPathTest {
+
+    private static final List<String> NOTICES = List.of(
+            "test_notices/test_notice.xml",
+            "test_notices/german_furniture.xml",
+            "test_notices/french_furniture.xml",
+            "test_notices/polish_furniture.xml");
+
+    @Test
+    public void testCompile_supportedPaths() {
+        assertNotNull(DomPath.compile(Constants.PATH_LOT));
+        assertNotNull(DomPath.compile(Constants.PATH_IN_LOT_ID));
+        assertNotNull(DomPath.compile(Constants.PATH_MAIN_CPV));
+        assertNotNull(DomPath.compile(Constants.PATH_STRATEGIC_PROCUREMENT_ENV_IMP));
+        assertNotNull(DomPath.compile(Constants.PATH_IN_AWARD_CRITERION_WEIGHT));
+        assertNotNull(DomPath.compile("cac:AwardingCriterion[cac:SubordinateAwardingCriterion/cbc:Name='x']"));
+        assertNotNull(DomPath.compile("root/child[@a=\"v\"][b='w']"));
+    }
+
+    @Test
+    public void testCompile_unsupportedPaths() {
+        assertNull(DomPath.compile(null));
+        assertNull(DomPath.compile(""));
+        assertNull(DomPath.compile("/cac:ProcurementProject"));
+        assertNull(DomPath.compile("cac:TenderingTerms//cbc:ID"));
+        assertNull(DomPath.compile("cac:ProcurementProject/."));
+        assertNull(DomPath.compile("*"));
+        assertNull(DomPath.compile("cac:ProcurementProject/@id"));
+        assertNull(DomPath.compile("cbc:ID[1]"));
+        assertNull(DomPath.compile("cbc:ID[@a='x' or @a='y']"));
+        assertNull(DomPath.compile("cbc:ID[not(@a)]"));
+        assertNull(DomPath.compile("cbc:ID[@a!='x']"));
+        assertNull(DomPath.compile("unknown:ID"));
+        assertNull(DomPath.compile("a[b[@c='d']]"));
+        assertNull(DomPath.compile("a[. = 'A']"));
+    }
+
+    @Test
+    public void testForPath_returnsSameInstance() {
+        DomPath first = DomPath.forPath(Constants.PATH_LOT);
+        assertNotNull(first);
+        assertSame(first, DomPath.forPath(Constants.PATH_LOT));
+        assertNull(DomPath.forPath("a[. = 'A']"));
+    }
+
+    @Test
+    public void testSelect_matchesXPathOnNotices() throws Exception {
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        xpath.setNamespaceContext(new javax.xml.namespace.NamespaceContext() {
+            public String getNamespaceURI(String prefix) {
+                return Constants.NAMESPACE_MAP.get(prefix);
+            }
+
+            public String getPrefix(String uri) {
+                return null;
+            }
+
+            public java.util.Iterator<String> getPrefixes(String uri) {
+                return null;
+            }
+        });
+        List<String> rootPaths = List.of(Constants.PATH_LOT, Constants.PATH_MAIN_CPV,
+                Constants.PATH_ADDITIONAL_CPVS, Constants.PATH_NOTICE_LANGUAGE, Constants.PATH_EFORMS_SDK_VERSION,
+                Constants.PATH_STRATEGIC_PROCUREMENT_NONE, Constants.PATH_STRATEGIC_PROCUREMENT_ENV_IMP);
+        List<String> lotPaths = List.of(Constants.PATH_IN_LOT_ID, Constants.PATH_IN_LOT_MAIN_CPV,
+                Constants.PATH_IN_LOT_ADDITIONAL_CPVS, Constants.PATH_AWARD_CRITERION,
+                Constants.PATH_AWARD_CRITERION_TYPE, Constants.PATH_AWARD_CRITERION_NAME,
+                Constants.PATH_AWARD_CRITERION_WEIGHT, Constants.PATH_STRATEGIC_PROCUREMENT_NONE,
+                Constants.PATH_STRATEGIC_PROCUREMENT_ENV_IMP);
+
+        for (String resource : NOTICES) {
+            Document doc = XmlUtils.loadDocument(XmlUtils.getAsXmlString(resource));
+            Node root = doc.getDocumentElement();
+            for (String path : rootPaths) {
+                assertSameSelection(resource, path, xpath, root);
+            }
+            NodeList lots = (NodeList) xpath.evaluate(Constants.PATH_LOT, root, XPathConstants.NODESET);
+            assertTrue(lots.getLength() > 0);
+            for (int i = 0; i < lots.getLength(); i++) {
+                for (String path : lotPaths) {
+                    assertSameSelection(resource, path, xpath, lots.item(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSelect_predicates() {
+        Document doc = XmlUtils.loadDocument(
+                "<root><a k='1'><b>x</b></a><a k='2'><b>y</b><c d='e'/></a><a k='2'><b>y</b></a></root>");
+        Node root = doc.getDocumentElement();
+
+        assertEquals(3, DomPath.compile("a").selectAll(root).size());
+        assertEquals(2, DomPath.compile("a[@k='2']").selectAll(root).size());
+        assertEquals(2, DomPath.compile("a[b='y']").selectAll(root).size());
+        assertEquals(1, DomPath.compile("a[b='y' and c/@d='e']").selectAll(root).size());
+        assertEquals(1, DomPath.compile("a[@k='2'][c/@d='e']/b").selectAll(root).size());
+        assertEquals("y", DomPath.compile("a[@k='2']/b").selectFirst(root).getTextContent());
+        assertNull(DomPath.compile("a[@k='3']").selectFirst(root));
+
+        NodeList nodes = DomPath.compile("a/b").selectNodeList(root);
+        assertEquals(3, nodes.getLength());
+        assertEquals("x", nodes.item(0).getTextContent());
+        assertNull(nodes.item(3));
+    }
+
+    @Test
+    public void testSelect_unprefixedNamesDoNotMatchNamespacedElements() {
+        Document doc = XmlUtils.loadDocument(
+                "<root xmlns:cbc='urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2'>"
+                        + "<cbc:ID>1</cbc:ID><ID>2</ID></root>");
+        Node root = doc.getDocumentElement();
+
+        assertEquals("1", DomPath.compile("cbc:ID").selectFirst(root).getTextContent());
+        assertEquals("2", DomPath.compile("ID").selectFirst(root).getTextContent());
+    }
+
+    private static void assertSameSelection(String resource, String path, XPath xpath, Node context)
+            throws Exception {
+        NodeList expected = (NodeList) xpath.evaluate(path, context, XPathConstants.NODESET);
+        List<Node> actual = DomPath.compile(path).selectAll(context);
+        assertEquals(resource + ": " + path, expected.getLength(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertSame(resource + ": " + path, expected.item(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testMayReach() {
+        Document doc = XmlUtils.loadDocument("<root xmlns:cac=\"" + Constants.NAMESPACE_MAP.get("cac")
+                + "\"><cac:A><cac:B><cac:C/></cac:B></cac:A><cac:D/></root>");
+        Node root = doc.getDocumentElement();
+        Node a = root.getFirstChild();
+        Node b = a.getFirstChild();
+        Node c = b.getFirstChild();
+        Node d = root.getLastChild();
+
+        DomPath path = DomPath.compile("cac:A/cac:B");
+        assertTrue(path.isPlain());
+        assertTrue(path.mayReach(root, a));
+        assertTrue(path.mayReach(root, b));
+        // below the selected nodes
+        assertFalse(path.mayReach(root, c));
+        assertFalse(path.mayReach(root, d));
+        // not under the context
+        assertTrue(path.mayReach(d, b));
+
+        assertFalse(DomPath.compile("cac:A[@x='1']/cac:B").isPlain());
+    }
+}
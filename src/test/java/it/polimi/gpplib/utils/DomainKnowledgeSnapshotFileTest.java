@@ -0,0 +1,127 @@
+package it.polimi.gpplib.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.polimi.gpplib.model.Constants;
+import it.polimi.gpplib.model.GppCriterion;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class DomainKnowledgeSnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead_sameKnowledgeAndLookups() throws Exception {
+        DomainKnowledgeSnapshot original = DomainKnowledgeSnapshot.load(Constants.DOMAIN_KNOWLEDGE_GPP_DOCS_PATH,
+                Constants.DOMAIN_KNOWLEDGE_GPP_CRITERIA_PATH, Constants.DOMAIN_KNOWLEDGE_GPP_PATCHES_PATH, 0);
+
+        DomainKnowledgeSnapshot read = DomainKnowledgeSnapshotFile.read(ByteBuffer.wrap(toBytes(original)), 0);
+
+        assertEquals(original.getGppDocuments().toString(), read.getGppDocuments().toString());
+        assertEquals(original.getGppCriteria().toString(), read.getGppCriteria().toString());
+        assertEquals(original.getGppPatches().toString(), read.getGppPatches().toString());
+        for (GppCriterion criterion : original.getGppCriteria()) {
+            for (String cpv : criterion.getRelevantCpvCodes()) {
+                List<String> cpvs = List.of(cpv.substring(0, 7) + "1");
+                assertEquals(original.getRelevantGppDocuments(cpvs).toString(),
+                        read.getRelevantGppDocuments(cpvs).toString());
+                assertEquals(original.getRelevantGppCriteria(cpvs, "core").toString(),
+                        read.getRelevantGppCriteria(cpvs, "core").toString());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndRead_nullFieldsAndMappedFile() throws Exception {
+        GppCriterion criterion = new GppCriterion("doc", null, "cat", "type", "both", "ID1", "name àé",
+                Arrays.asList("00000000", "39100000"), null, null, null);
+        DomainKnowledgeSnapshot original = new DomainKnowledgeSnapshot(List.of(), List.of(criterion), List.of(), 0);
+        Path file = tempFolder.newFile("knowledge.bin").toPath();
+        DomainKnowledgeSnapshotFile.write(original, file);
+
+        DomainKnowledgeSnapshot read = DomainKnowledgeSnapshotFile.read(file, 0);
+
+        assertEquals(1, read.getGppCriteria().size());
+        assertEquals(criterion.toString(), read.getGppCriteria().get(0).toString());
+        assertNull(read.getGppCriteria().get(0).getGppSource());
+        assertEquals(1, read.getRelevantGppCriteria(List.of("00000000"), "core").size());
+        assertEquals(1, read.getRelevantGppCriteria(List.of("39120000"), "core").size());
+        assertTrue(read.getRelevantGppCriteria(List.of("00000001"), "core").isEmpty());
+    }
+
+    @Test
+    public void testRead_invalidData() throws Exception {
+        DomainKnowledgeSnapshot original = DomainKnowledgeSnapshot.load(
+                "domain_knowledge/test_gpp_criteria_docs.json", "domain_knowledge/test_gpp_criteria.json",
+                "domain_knowledge/test_gpp_patches_data.json", 0);
+        byte[] bytes = toBytes(original);
+
+        assertInvalid("{\"not\": \"a snapshot\"}".getBytes());
+        assertInvalid(Arrays.copyOf(bytes, bytes.length / 2));
+        byte[] otherVersion = bytes.clone();
+        otherVersion[7] = 99;
+        assertInvalid(otherVersion);
+    }
+
+    @Test
+    public void testRead_invalidCpvCodeLength() throws Exception {
+        byte[] bytes = toBytes(new DomainKnowledgeSnapshot(List.of(), List.of(), List.of(), 0));
+        // the two empty CPV indexes at the end: item count, exact code count and
+        // root node (index count, digit mask and other children count) each
+        int docsIndex = bytes.length - 2 * (3 * Integer.BYTES + 2 * Short.BYTES);
+        ByteBuffer corrupted = ByteBuffer.wrap(bytes);
+        corrupted.putInt(docsIndex + Integer.BYTES, 1);
+        corrupted.putInt(docsIndex + 2 * Integer.BYTES, -5);
+
+        assertInvalid(bytes);
+    }
+
+    @Test
+    public void testRead_missingPath() {
+        try {
+            DomainKnowledgeSnapshotFile.read("invalid_path/gpp_knowledge.bin", 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Invalid GPP knowledge snapshot path: invalid_path/gpp_knowledge.bin", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testMain_writesSnapshot() throws Exception {
+        Path output = tempFolder.getRoot().toPath().resolve("out/gpp_knowledge.bin");
+        DomainKnowledgeSnapshotFile.main(new String[] { output.toString(),
+                "domain_knowledge/test_gpp_criteria_docs.json", "domain_knowledge/test_gpp_criteria.json",
+                "domain_knowledge/test_gpp_patches_data.json" });
+
+        assertTrue(Files.size(output) > 0);
+        assertEquals(3, DomainKnowledgeSnapshotFile.read(output.toString(), 0).getGppCriteria().size());
+    }
+
+    private static byte[] toBytes(DomainKnowledgeSnapshot snapshot) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DomainKnowledgeSnapshotFile.write(snapshot, out);
+        return out.toByteArray();
+    }
+
+    private static void assertInvalid(byte[] bytes) {
+        try {
+            DomainKnowledgeSnapshotFile.read(ByteBuffer.wrap(bytes), 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Invalid GPP knowledge snapshot")
+                    || ex.getMessage().startsWith("Not a GPP knowledge snapshot")
+                    || ex.getMessage().startsWith("Unsupported GPP knowledge snapshot version"));
+        }
+    }
+}
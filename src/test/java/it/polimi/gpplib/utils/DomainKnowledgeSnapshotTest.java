@@ -0,0 +1,55 @@
+package it.polimi.gpplib.utils;
+
+import org.junit.Test;
+
+import it.polimi.gpplib.model.GppCriterion;
+import it.polimi.gpplib.model.GppDocument;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DomainKnowledgeSnapshotTest {
+
+    @Test
+    public void testLoad() {
+        DomainKnowledgeSnapshot snapshot = DomainKnowledgeSnapshot.load("domain_knowledge/test_gpp_criteria_docs.json",
+                "domain_knowledge/test_gpp_criteria.json", "domain_knowledge/test_gpp_patches_data.json", 16);
+
+        assertEquals(2, snapshot.getGppDocuments().size());
+        assertEquals(3, snapshot.getGppCriteria().size());
+        assertFalse(snapshot.getGppPatches().isEmpty());
+        assertEquals("Doc1", snapshot.getRelevantGppDocuments(List.of("11111111")).get(0).getName());
+    }
+
+    @Test
+    public void testLoad_invalidPath() {
+        try {
+            DomainKnowledgeSnapshot.load("domain_knowledge/test_gpp_criteria_docs.json",
+                    "invalid_path/test_gpp_criteria.json", "domain_knowledge/test_gpp_patches_data.json", 16);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Invalid GPP criteria file path: invalid_path/test_gpp_criteria.json", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedBySourceLists() {
+        List<GppDocument> docs = new ArrayList<>();
+        docs.add(new GppDocument("Doc1", "src", "ref", null, List.of("11111111"), "summary"));
+        List<GppCriterion> criteria = new ArrayList<>();
+        DomainKnowledgeSnapshot snapshot = new DomainKnowledgeSnapshot(docs, criteria, new ArrayList<>(), 0);
+
+        docs.clear();
+
+        assertEquals(1, snapshot.getGppDocuments().size());
+        assertEquals(1, snapshot.getRelevantGppDocuments(List.of("11111111")).size());
+        try {
+            snapshot.getGppDocuments().clear();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+}
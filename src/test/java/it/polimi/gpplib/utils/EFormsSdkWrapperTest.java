@@ -5,6 +5,8 @@ import static org.junit.Assert.*;
 import java.util.List;
 import org.w3c.dom.Document;
 
+import it.polimi.gpplib.model.Constants;
+
 /**
  * Test class for EFormsSdkWrapper functionality.
  */
@@ -41,6 +43,21 @@ public class EFormsSdkWrapperTest {
                 }
         }
 
+        @Test
+        public void testGetProcurementProjectTypeOrdinals() {
+                EFormsSdkWrapper wrapper = new EFormsSdkWrapper();
+                List<String> refElements = wrapper.getProcurementProjectTypeSchema();
+                java.util.Map<String, Integer> ordinals = wrapper.getProcurementProjectTypeOrdinals();
+
+                for (int i = 0; i < refElements.size(); i++) {
+                        assertEquals(refElements.indexOf(refElements.get(i)),
+                                        ordinals.get(XmlUtils.getExpandedName(refElements.get(i))).intValue());
+                }
+                assertEquals(refElements.indexOf("cbc:ID"),
+                                ordinals.get("{" + Constants.NAMESPACE_MAP.get("cbc") + "}ID").intValue());
+                assertNull(ordinals.get(XmlUtils.getExpandedName("cac:NotInTheSchema")));
+        }
+
         @Test
         public void testRefElementsCount() {
                 // Test that we get the expected number of elements
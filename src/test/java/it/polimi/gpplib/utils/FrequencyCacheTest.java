@@ -0,0 +1,97 @@
+package it.polimi.gpplib.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FrequencyCacheTest {
+
+    @Test
+    public void testGet_computesOnceAndCountsHits() {
+        FrequencyCache<String, String> cache = new FrequencyCache<>(4);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", key -> {
+            loads.incrementAndGet();
+            return key.toUpperCase();
+        }));
+        assertEquals("A", cache.get("a", key -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(1, cache.getStats().getMissCount());
+        assertEquals(0.5, cache.getStats().getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testGet_evictsLeastFrequentlyUsed() {
+        FrequencyCache<String, String> cache = new FrequencyCache<>(3);
+        cache.get("hot", key -> key);
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot", key -> key);
+        }
+        cache.get("warm", key -> key);
+        cache.get("warm", key -> key);
+        cache.get("cold", key -> key);
+
+        // "hot" is the least recently used entry, but the most frequently used
+        cache.get("new", key -> key);
+
+        assertEquals(3, cache.size());
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("hot", key -> {
+            loads.incrementAndGet();
+            return key;
+        });
+        cache.get("warm", key -> {
+            loads.incrementAndGet();
+            return key;
+        });
+        assertEquals(0, loads.get());
+        cache.get("cold", key -> {
+            loads.incrementAndGet();
+            return key;
+        });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testGet_oneOffKeysDoNotEvictFrequentKeys() {
+        FrequencyCache<String, String> cache = new FrequencyCache<>(16);
+        for (int i = 0; i < 10; i++) {
+            cache.get("furniture", key -> key);
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.get("one-off-" + i, key -> key);
+            if (i % 50 == 0) {
+                cache.get("furniture", key -> key);
+            }
+        }
+
+        long misses = cache.getStats().getMissCount();
+        cache.get("furniture", key -> key);
+        assertEquals(misses, cache.getStats().getMissCount());
+        assertEquals(16, cache.size());
+    }
+
+    @Test
+    public void testClear_keepsStats() {
+        FrequencyCache<String, String> cache = new FrequencyCache<>(2);
+        cache.get("a", key -> key);
+        cache.get("a", key -> key);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStats().getHitCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidSize() {
+        new FrequencyCache<String, String>(0);
+    }
+}
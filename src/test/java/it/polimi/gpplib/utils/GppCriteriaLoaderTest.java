@@ -3,6 +3,8 @@ package it.polimi.gpplib.utils;
 import it.polimi.gpplib.model.GppCriterion;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -57,4 +59,20 @@ public class GppCriteriaLoaderTest {
         assertEquals("descC", crit3.getDescription());
         assertEquals("selTypeC", crit3.getSelectionCriterionType());
     }
+
+    @Test
+    public void testLoadGppCriteria_fromFilesystem() throws Exception {
+        Path file = Files.createTempFile("gpp_criteria", ".json");
+        try {
+            Files.writeString(file,
+                    "[{\"id\": \"FS1\", \"ambitionLevel\": \"core\", \"relevantCpvCodes\": [\"39100000\"]}]");
+            List<GppCriterion> criteria = new GppCriteriaLoader(file.toString()).loadGppCriteria();
+
+            assertEquals(1, criteria.size());
+            assertEquals("FS1", criteria.get(0).getId());
+            assertEquals(List.of("391"), criteria.get(0).getRelevantCpvPrefixes());
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
@@ -1,7 +1,10 @@
 package it.polimi.gpplib.utils;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import it.polimi.gpplib.model.Constants;
 import it.polimi.gpplib.model.GppCriterion;
 import it.polimi.gpplib.model.GppDocument;
 import it.polimi.gpplib.model.Notice;
@@ -10,11 +13,25 @@ import it.polimi.gpplib.model.SuggestedGppPatch;
 
 import static org.junit.Assert.*;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class GppDomainKnowledgeServiceTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void testGppDomainKnowledgeServiceInitialization_invalidGppDocs() {
         String gppDocsPath = "invalid_path/test_gpp_criteria_docs.json";
@@ -130,4 +147,242 @@ public class GppDomainKnowledgeServiceTest {
         assertTrue(suggestedPatches.isEmpty());
     }
 
+    @Test
+    public void testGetRelevantGppCriteria_cachedPerCpvSetAndAmbitionLevel() {
+        GppDomainKnowledgeService service = new GppDomainKnowledgeService("domain_knowledge/test_gpp_criteria_docs.json",
+                "domain_knowledge/test_gpp_criteria.json", "domain_knowledge/test_gpp_patches_data.json");
+
+        List<GppCriterion> first = service.getRelevantGppCriteria(List.of("40000000", "30000000"), "comprehensive");
+        List<GppCriterion> second = service.getRelevantGppCriteria(List.of("30000000", "40000000", "30000000"),
+                "comprehensive");
+        assertEquals(first, second);
+        assertEquals(1, service.getRelevanceCacheStats().getHitCount());
+
+        // the ambition level is part of the key
+        service.getRelevantGppCriteria(List.of("40000000", "30000000"), "core");
+        assertEquals(2, service.getRelevanceCacheStats().getMissCount());
+
+        // callers get their own list
+        second.clear();
+        assertEquals(first, service.getRelevantGppCriteria(List.of("30000000", "40000000"), "comprehensive"));
+
+        service.getRelevantGppDocuments(List.of("11111111"));
+        List<GppDocument> docs = service.getRelevantGppDocuments(List.of("11111111"));
+        assertEquals("Doc1", docs.get(0).getName());
+        assertEquals(3, service.getRelevanceCacheStats().getHitCount());
+    }
+
+    @Test
+    public void testGetRelevantGppCriteria_cacheDisabled() {
+        GppDomainKnowledgeService service = new GppDomainKnowledgeService("domain_knowledge/test_gpp_criteria_docs.json",
+                "domain_knowledge/test_gpp_criteria.json", "domain_knowledge/test_gpp_patches_data.json", 0);
+
+        assertEquals("ID2", service.getRelevantGppCriteria(List.of("40000000"), "comprehensive").get(0).getId());
+        assertEquals("ID2", service.getRelevantGppCriteria(List.of("40000000"), "comprehensive").get(0).getId());
+        assertEquals(0, service.getRelevanceCacheStats().getRequestCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGppDomainKnowledgeServiceInitialization_negativeCacheSize() {
+        new GppDomainKnowledgeService("domain_knowledge/test_gpp_criteria_docs.json",
+                "domain_knowledge/test_gpp_criteria.json", "domain_knowledge/test_gpp_patches_data.json", -1);
+    }
+
+    @Test
+    public void testReload_publishesNewSnapshot() throws Exception {
+        Path dir = copyTestKnowledge();
+        try (GppDomainKnowledgeService service = newFileService(dir)) {
+            DomainKnowledgeSnapshot before = service.getSnapshot();
+            assertEquals(1, service.getRelevantGppDocuments(List.of("11111111")).size());
+
+            writeDocs(dir, "99999999");
+            DomainKnowledgeSnapshot after = service.reload();
+
+            assertNotSame(before, after);
+            assertSame(after, service.getSnapshot());
+            assertTrue(service.getRelevantGppDocuments(List.of("11111111")).isEmpty());
+            assertEquals(1, service.getRelevantGppDocuments(List.of("99999999")).size());
+            // the old snapshot still answers with the old knowledge
+            assertEquals(1, before.getRelevantGppDocuments(List.of("11111111")).size());
+            assertEquals(0, service.getRelevanceCacheStats().getHitCount());
+        }
+    }
+
+    @Test
+    public void testReload_overlappingReloadsKeepNewest() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch slowLoadStarted = new CountDownLatch(1);
+        CountDownLatch slowLoadReleased = new CountDownLatch(1);
+        GppDomainKnowledgeService service = new GppDomainKnowledgeService(
+                "domain_knowledge/test_gpp_criteria_docs.json", "domain_knowledge/test_gpp_criteria.json",
+                "domain_knowledge/test_gpp_patches_data.json") {
+            @Override
+            DomainKnowledgeSnapshot loadSnapshot() {
+                DomainKnowledgeSnapshot loaded = super.loadSnapshot();
+                // the first load is the constructor's, the second one is slow
+                if (loads.incrementAndGet() == 2) {
+                    slowLoadStarted.countDown();
+                    try {
+                        slowLoadReleased.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return loaded;
+            }
+        };
+
+        AtomicReference<DomainKnowledgeSnapshot> slowResult = new AtomicReference<>();
+        Thread slowReload = new Thread(() -> slowResult.set(service.reload()));
+        slowReload.start();
+        assertTrue(slowLoadStarted.await(10, TimeUnit.SECONDS));
+
+        DomainKnowledgeSnapshot newer = service.reload();
+        assertSame(newer, service.getSnapshot());
+
+        slowLoadReleased.countDown();
+        slowReload.join(10_000);
+        // the slow load started first, so it is not published
+        assertSame(newer, service.getSnapshot());
+        assertSame(newer, slowResult.get());
+    }
+
+    @Test
+    public void testReloadAsync_failureKeepsCurrentSnapshot() throws Exception {
+        Path dir = copyTestKnowledge();
+        try (GppDomainKnowledgeService service = newFileService(dir)) {
+            DomainKnowledgeSnapshot before = service.getSnapshot();
+            Files.writeString(dir.resolve("criteria.json"), "[ not json", StandardCharsets.UTF_8);
+
+            try {
+                service.reloadAsync().join();
+                fail("Expected CompletionException");
+            } catch (CompletionException ex) {
+                assertTrue(ex.getCause() instanceof IllegalArgumentException);
+            }
+            assertSame(before, service.getSnapshot());
+            assertEquals("ID2", service.getRelevantGppCriteria(List.of("40000000"), "comprehensive").get(0).getId());
+        }
+    }
+
+    @Test
+    public void testStartWatching_reloadsOnFileChange() throws Exception {
+        Path dir = copyTestKnowledge();
+        try (GppDomainKnowledgeService service = newFileService(dir)) {
+            service.startWatching();
+            assertTrue(service.isWatching());
+            DomainKnowledgeSnapshot before = service.getSnapshot();
+
+            writeDocs(dir, "99999999");
+
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (service.getSnapshot() == before && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertNotSame(before, service.getSnapshot());
+            assertEquals(1, service.getRelevantGppDocuments(List.of("99999999")).size());
+
+            service.stopWatching();
+            assertFalse(service.isWatching());
+        }
+    }
+
+    @Test
+    public void testStartWatching_classpathResourcesInDirectories() {
+        try (GppDomainKnowledgeService service = new GppDomainKnowledgeService(
+                "domain_knowledge/test_gpp_criteria_docs.json", "domain_knowledge/test_gpp_criteria.json",
+                "domain_knowledge/test_gpp_patches_data.json")) {
+            // test resources are exploded in target/test-classes
+            service.startWatching();
+            assertTrue(service.isWatching());
+        }
+    }
+
+    private Path copyTestKnowledge() throws Exception {
+        Path dir = tempFolder.newFolder("knowledge").toPath();
+        copyResource("domain_knowledge/test_gpp_criteria_docs.json", dir.resolve("docs.json"));
+        copyResource("domain_knowledge/test_gpp_criteria.json", dir.resolve("criteria.json"));
+        copyResource("domain_knowledge/test_gpp_patches_data.json", dir.resolve("patches.json"));
+        return dir;
+    }
+
+    private static void copyResource(String resource, Path target) throws Exception {
+        try (InputStream is = GppDomainKnowledgeServiceTest.class.getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static GppDomainKnowledgeService newFileService(Path dir) {
+        return new GppDomainKnowledgeService(dir.resolve("docs.json").toString(),
+                dir.resolve("criteria.json").toString(), dir.resolve("patches.json").toString());
+    }
+
+    private static void writeDocs(Path dir, String cpv) throws Exception {
+        Files.writeString(dir.resolve("docs.json"), "[{\"name\": \"DocNew\", \"relevantCpvCodes\": [\"" + cpv
+                + "\"]}]", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testBinarySnapshot_preferredWhenPresent() throws Exception {
+        Path dir = copyTestKnowledge();
+        Path bin = dir.resolve("knowledge.bin");
+        DomainKnowledgeSnapshot json;
+        try (GppDomainKnowledgeService service = newFileService(dir)) {
+            json = service.getSnapshot();
+        }
+        // a snapshot with different content than the JSON files, newer than them
+        DomainKnowledgeSnapshotFile.write(new DomainKnowledgeSnapshot(json.getGppDocuments().subList(0, 1),
+                json.getGppCriteria(), json.getGppPatches(), 0), bin);
+
+        try (GppDomainKnowledgeService service = newFileService(dir, bin)) {
+            assertEquals(1, service.getSnapshot().getGppDocuments().size());
+        }
+
+        // corrupt or missing snapshots fall back to JSON
+        Files.write(bin, new byte[] { 1, 2, 3 });
+        try (GppDomainKnowledgeService service = newFileService(dir, bin)) {
+            assertEquals(2, service.getSnapshot().getGppDocuments().size());
+        }
+        Files.delete(bin);
+        try (GppDomainKnowledgeService service = newFileService(dir, bin)) {
+            assertEquals(2, service.getSnapshot().getGppDocuments().size());
+        }
+    }
+
+    @Test
+    public void testBinarySnapshot_ignoredWhenOlderThanJson() throws Exception {
+        Path dir = copyTestKnowledge();
+        Path bin = dir.resolve("knowledge.bin");
+        try (GppDomainKnowledgeService service = newFileService(dir)) {
+            DomainKnowledgeSnapshotFile.write(service.getSnapshot(), bin);
+        }
+        Files.setLastModifiedTime(bin, FileTime.fromMillis(0));
+        writeDocs(dir, "99999999");
+
+        try (GppDomainKnowledgeService service = newFileService(dir, bin)) {
+            assertEquals("DocNew", service.getSnapshot().getGppDocuments().get(0).getName());
+        }
+    }
+
+    @Test
+    public void testDefaultSnapshotMatchesJson() {
+        try (GppDomainKnowledgeService fromSnapshot = new GppDomainKnowledgeService(
+                Constants.DOMAIN_KNOWLEDGE_SNAPSHOT_PATH,
+                Constants.DOMAIN_KNOWLEDGE_GPP_DOCS_PATH,
+                Constants.DOMAIN_KNOWLEDGE_GPP_CRITERIA_PATH,
+                Constants.DOMAIN_KNOWLEDGE_GPP_PATCHES_PATH, 0);
+                GppDomainKnowledgeService fromJson = new GppDomainKnowledgeService(
+                        Constants.DOMAIN_KNOWLEDGE_GPP_DOCS_PATH,
+                        Constants.DOMAIN_KNOWLEDGE_GPP_CRITERIA_PATH,
+                        Constants.DOMAIN_KNOWLEDGE_GPP_PATCHES_PATH)) {
+            assertEquals(fromJson.getSnapshot().getGppCriteria().toString(),
+                    fromSnapshot.getSnapshot().getGppCriteria().toString());
+        }
+    }
+
+    private static GppDomainKnowledgeService newFileService(Path dir, Path snapshot) {
+        return new GppDomainKnowledgeService(snapshot.toString(), dir.resolve("docs.json").toString(),
+                dir.resolve("criteria.json").toString(), dir.resolve("patches.json").toString(), 0);
+    }
+
 }
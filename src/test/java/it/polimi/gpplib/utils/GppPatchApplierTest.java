@@ -4,10 +4,15 @@ import org.junit.Test;
 import org.w3c.dom.Node;
 
 import it.polimi.gpplib.model.Constants;
+import it.polimi.gpplib.model.GppCriterion;
 import it.polimi.gpplib.model.Notice;
+import it.polimi.gpplib.model.SuggestedGppCriterion;
 import it.polimi.gpplib.model.SuggestedGppPatch;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -33,6 +38,139 @@ public class GppPatchApplierTest {
                 }
         }
 
+        @Test
+        public void testApplyPatch_marksNoticeModified() {
+                assertEquals(java.util.List.of("24210000", "33192000"), notice.getAllLotCpvs("LOT-0001"));
+                String patchValue = "<cac:AdditionalCommodityClassification xmlns:cac=\"urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2\" xmlns:cbc=\"urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2\">"
+                                + "<cbc:ItemClassificationCode listName=\"cpv\">39110000</cbc:ItemClassificationCode>"
+                                + "</cac:AdditionalCommodityClassification>";
+                SuggestedGppPatch patch = new SuggestedGppPatch("testPatch", Collections.emptyList(), null,
+                                Constants.PATH_PROCUREMENT_PROJECT, patchValue, "create", "Test patch", "LOT-0001");
+                patchApplier.applyPatch(notice, patch);
+
+                assertEquals(java.util.List.of("24210000", "33192000", "39110000"),
+                                notice.getAllLotCpvs("LOT-0001"));
+        }
+
+        @Test
+        public void testApplyPatches_sameAsOneByOne() throws Exception {
+                List<GppCriterion> gppCriteria = new ArrayList<>();
+                gppCriteria.add(new GppCriterion("gpp-doc-1", "eu", "", "award criteria", "core", "AC1",
+                                "Award Criterion 1", List.of("30000000"), "env-imp-type-1", "description for AC1",
+                                null));
+                gppCriteria.add(new GppCriterion("gpp-doc-1", "eu", "", "award criteria", "core", "AC2",
+                                "Award Criterion 2", List.of("30000000"), "env-imp-type-2", "description for AC2",
+                                null));
+                gppCriteria.add(new GppCriterion("gpp-doc-2", "national", "", "selection criteria", "core", "SC1",
+                                "Selection Criterion 1", List.of("30000000"), "env-imp-type-1",
+                                "description for SC1", null));
+                List<SuggestedGppCriterion> suggestedCriteria = new ArrayList<>();
+                for (GppCriterion crit : gppCriteria) {
+                        suggestedCriteria.add(new SuggestedGppCriterion(crit.getGppDocument(), crit.getCategory(),
+                                        crit.getCriterionType(), crit.getAmbitionLevel(), crit.getId(),
+                                        crit.getName(), crit.getRelevantCpvCodes(), crit.getRelevantCpvCodes(),
+                                        "LOT-0001"));
+                }
+                GppPatchSuggester suggester = new GppPatchSuggester(gppCriteria,
+                                new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json").loadGppPatches());
+                List<SuggestedGppPatch> patches = suggester.suggestGppPatches(notice, suggestedCriteria);
+
+                Notice oneByOne = notice.copy();
+                for (SuggestedGppPatch patch : patches) {
+                        patchApplier.applyPatch(oneByOne, patch);
+                }
+                patchApplier.applyPatches(notice, patches);
+
+                assertEquals(oneByOne.toXmlString(), notice.toXmlString());
+        }
+
+        @Test
+        public void testApplyPatches_dependencyOrder() {
+                String cac = Constants.NAMESPACE_MAP.get("cac");
+                SuggestedGppPatch child = new SuggestedGppPatch("Award Criteria", Collections.emptyList(),
+                                "Awarding Terms", "cac:TenderingTerms/cac:AwardingTerms",
+                                "<cac:AwardingCriterion xmlns:cac=\"" + cac + "\"/>", "create", "child", "LOT-0001");
+                SuggestedGppPatch parent = new SuggestedGppPatch("Awarding Terms", Collections.emptyList(),
+                                "Tendering Terms", "cac:TenderingTerms",
+                                "<cac:AwardingTerms xmlns:cac=\"" + cac + "\"/>", "create", "parent", "LOT-0001");
+
+                patchApplier.applyPatches(notice, Arrays.asList(child, null, parent));
+
+                assertTrue(notice.doesPathExistInLot("LOT-0001",
+                                "cac:TenderingTerms/cac:AwardingTerms/cac:AwardingCriterion"));
+        }
+
+        @Test
+        public void testApplyPatches_validatesBeforeApplying() {
+                SuggestedGppPatch valid = new SuggestedGppPatch("testPatch", Collections.emptyList(), null,
+                                Constants.PATH_PROCUREMENT_PROJECT, "<value>potato</value>", "create", "Test patch",
+                                "LOT-0001");
+                SuggestedGppPatch invalid = new SuggestedGppPatch("testPatch", Collections.emptyList(), null,
+                                Constants.PATH_PROCUREMENT_PROJECT, "<value>potato</value>", "create", "Test patch",
+                                "LOT-0009");
+                String before = notice.toXmlString();
+                try {
+                        patchApplier.applyPatches(notice, List.of(valid, invalid));
+                        fail("Expected IllegalArgumentException");
+                } catch (IllegalArgumentException ex) {
+                        assertEquals("Lot not found for id: LOT-0009", ex.getMessage());
+                }
+                assertEquals(before, notice.toXmlString());
+        }
+
+        @Test
+        public void testApplyPatches_overlappingPaths() {
+                String cac = " xmlns:cac=\"" + Constants.NAMESPACE_MAP.get("cac") + "\"";
+                String project = Constants.PATH_PROCUREMENT_PROJECT;
+                List<String[]> pathsAndValues = List.of(
+                                new String[] { project, "<cac:Foo" + cac + "/>" },
+                                new String[] { project, "<cac:Foo" + cac + "><cac:Bar/></cac:Foo>" },
+                                // the Bar of the second Foo
+                                new String[] { project + "/cac:Foo/cac:Bar", "<cac:Baz" + cac + ">1</cac:Baz>" },
+                                new String[] { project + "/cac:Foo", "<cac:Bar" + cac + "/>" },
+                                // now the Bar of the first Foo
+                                new String[] { project + "/cac:Foo/cac:Bar", "<cac:Baz" + cac + ">2</cac:Baz>" },
+                                new String[] { project + "/cac:Foo[last()]", "<cac:Qux" + cac + ">1</cac:Qux>" },
+                                new String[] { project, "<cac:Foo" + cac + "/>" },
+                                // now the third Foo
+                                new String[] { project + "/cac:Foo[last()]", "<cac:Qux" + cac + ">2</cac:Qux>" });
+                List<SuggestedGppPatch> patches = new ArrayList<>();
+                for (int i = 0; i < pathsAndValues.size(); i++) {
+                        patches.add(new SuggestedGppPatch("patch" + i, Collections.emptyList(), null,
+                                        pathsAndValues.get(i)[0], pathsAndValues.get(i)[1], "create", "Test patch",
+                                        "LOT-0001"));
+                }
+
+                Notice oneByOne = notice.copy();
+                for (SuggestedGppPatch patch : patches) {
+                        patchApplier.applyPatch(oneByOne, patch);
+                }
+                patchApplier.applyPatches(notice, patches);
+
+                assertEquals(oneByOne.toXmlString(), notice.toXmlString());
+                Node lot = notice.getLotNode("LOT-0001");
+                assertEquals("2", XmlUtils.getNodeValueAtPath(lot, project + "/cac:Foo[1]/cac:Bar/cac:Baz"));
+                assertEquals("1", XmlUtils.getNodeValueAtPath(lot, project + "/cac:Foo[2]/cac:Bar/cac:Baz"));
+                assertEquals("1", XmlUtils.getNodeValueAtPath(lot, project + "/cac:Foo[2]/cac:Qux"));
+                assertEquals("2", XmlUtils.getNodeValueAtPath(lot, project + "/cac:Foo[3]/cac:Qux"));
+        }
+
+        @Test
+        public void testApplyPatches_sharedValueAcrossNotices() {
+                SuggestedGppPatch patch = new SuggestedGppPatch("testPatch", Collections.emptyList(), null,
+                                Constants.PATH_PROCUREMENT_PROJECT, "<value>potato</value>", "create", "Test patch",
+                                "LOT-0001");
+                Notice other = notice.copy();
+
+                patchApplier.applyPatches(notice, List.of(patch));
+                patchApplier.applyPatches(other, List.of(patch, patch));
+
+                assertEquals(1, XmlUtils.getNodesAtPath(notice.getLotNode("LOT-0001"),
+                                Constants.PATH_PROCUREMENT_PROJECT + "/value").getLength());
+                assertEquals(2, XmlUtils.getNodesAtPath(other.getLotNode("LOT-0001"),
+                                Constants.PATH_PROCUREMENT_PROJECT + "/value").getLength());
+        }
+
         @Test
         public void testApplyPatch_invalidOp() {
                 try {
@@ -126,6 +264,31 @@ public class GppPatchApplierTest {
                 assertNotNull("ProcurementProject should exist", procurementProject);
         }
 
+        @Test
+        public void testApplyPatch_procurementProjectWithOtherPrefixes() {
+                // the notice binds the UBL namespaces to other prefixes, the patch uses a
+                // default namespace
+                String noticeXml = XmlUtils.getAsXmlString("test_notices/test_notice_minimal.xml")
+                                .replace("cac:", "a:").replace("xmlns:cac=", "xmlns:a=")
+                                .replace("cbc:", "b:").replace("xmlns:cbc=", "xmlns:b=");
+                Notice otherPrefixes = new Notice(noticeXml);
+                String patchValue = "<Name xmlns=\"" + Constants.NAMESPACE_MAP.get("cbc") + "\">Title</Name>";
+                SuggestedGppPatch patch = new SuggestedGppPatch("namePatch", Collections.emptyList(), null,
+                                Constants.PATH_PROCUREMENT_PROJECT, patchValue, "create", "Name patch", "LOT-0001");
+
+                patchApplier.applyPatch(otherPrefixes, patch);
+
+                // cbc:Name comes before the commodity classifications in the schema
+                Node procurementProject = XmlUtils.getNodeAtPath(otherPrefixes.getLotNode("LOT-0001"),
+                                Constants.PATH_PROCUREMENT_PROJECT);
+                Node first = procurementProject.getFirstChild();
+                while (first.getNodeType() != Node.ELEMENT_NODE) {
+                        first = first.getNextSibling();
+                }
+                assertEquals("Name", first.getLocalName());
+                assertEquals("Title", first.getTextContent());
+        }
+
         @Test
         public void testApplyPatch_elementNotInSchema() {
                 // Test with an element that's not in the schema - should append at end
@@ -0,0 +1,85 @@
+package it.polimi.gpplib.utils;
+
+import it.polimi.gpplib.model.GppPatch;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GppPatchGraphTest {
+
+    @Test
+    public void testFindByName_ignoresCaseAndFirstWins() {
+        GppPatch first = patch("Award Criteria", null);
+        GppPatch duplicate = patch("AWARD CRITERIA", null);
+        GppPatchGraph graph = GppPatchGraph.build(List.of(first, duplicate));
+
+        assertSame(first, graph.findByName("award criteria"));
+        assertNull(graph.findByName("Award Criterion"));
+        assertNull(graph.findByName(null));
+        assertEquals(List.of(first, duplicate), graph.getPatches());
+    }
+
+    @Test
+    public void testGetAncestors() {
+        GppPatch root = patch("Tendering Terms", null);
+        GppPatch middle = patch("Awarding Terms", "tendering terms");
+        GppPatch leaf = patch("Award Criteria", "Awarding Terms");
+        GppPatch noParent = patch("Other", "-");
+        GppPatchGraph graph = GppPatchGraph.build(List.of(leaf, middle, root, noParent));
+
+        assertEquals(List.of(middle, root), graph.getAncestors("Award Criteria"));
+        assertEquals(List.of(root), graph.getAncestors("Awarding Terms"));
+        assertTrue(graph.getAncestors("Tendering Terms").isEmpty());
+        assertTrue(graph.getAncestors("Other").isEmpty());
+        assertTrue(graph.getAncestors("Unknown").isEmpty());
+    }
+
+    @Test
+    public void testGetAncestors_missingParentEndsChain() {
+        GppPatch middle = patch("Awarding Terms", "Tendering Terms");
+        GppPatch leaf = patch("Award Criteria", "Awarding Terms");
+        GppPatchGraph graph = GppPatchGraph.build(List.of(leaf, middle));
+
+        assertEquals(List.of(middle), graph.getAncestors("Award Criteria"));
+    }
+
+    @Test
+    public void testBuild_cycle() {
+        List<GppPatch> patches = List.of(
+                patch("A", "B"),
+                patch("B", "C"),
+                patch("C", "a"));
+        try {
+            GppPatchGraph.build(patches);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Cyclic GPP patch dependency: A -> B -> C -> A", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testBuild_selfDependency() {
+        try {
+            GppPatchGraph.build(List.of(patch("A", "A")));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Cyclic GPP patch dependency: A -> A", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testBuild_realPatches() throws Exception {
+        GppPatchGraph graph = new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json")
+                .loadGppPatchGraph();
+
+        List<GppPatch> ancestors = graph.getAncestors("Award Criterion");
+        assertEquals(List.of("Award Criteria", "Awarding Terms", "Tendering Terms"),
+                ancestors.stream().map(GppPatch::getName).toList());
+    }
+
+    private static GppPatch patch(String name, String dependsOn) {
+        return new GppPatch(name, List.of(), dependsOn, "path", "<xml/>");
+    }
+}
@@ -1,5 +1,8 @@
 package it.polimi.gpplib.utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -104,6 +107,117 @@ public class GppPatchSuggesterTest {
         assertTrue(suggestedPatches.size() == 12);
     }
 
+    @Test
+    public void testSuggestGppPatches_criterionLookupIgnoresCase() throws IOException {
+        List<GppCriterion> gppCriteria = new ArrayList<>();
+        gppCriteria.add(new GppCriterion(
+                "gpp-doc-1", "eu", "", "award criteria", "core", "AC1", "Award Criterion 1",
+                List.of("30000000"), "env-imp-type-1", "description for AC1", null));
+        // same key as the first one, which wins
+        gppCriteria.add(new GppCriterion(
+                "GPP-DOC-1", "national", "", "award criteria", "CORE", "ac1", "Award Criterion 1 bis",
+                List.of("30000000"), "env-imp-type-2", "description for AC1 bis", null));
+
+        GppPatchesLoader patchesLoader = new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json");
+        GppPatchSuggester suggester = new GppPatchSuggester(gppCriteria, patchesLoader.loadGppPatches());
+        Notice notice = new Notice(XmlUtils.getAsXmlString("test_notices/test_notice_minimal.xml"));
+
+        List<SuggestedGppCriterion> suggestedCriteria = new ArrayList<>();
+        suggestedCriteria.add(new SuggestedGppCriterion("Gpp-Doc-1", "", "award criteria", "Core", "Ac1",
+                "Award Criterion 1", List.of("30000000"), List.of("30000000"), "LOT-0001"));
+        // no criterion has this ambition level
+        suggestedCriteria.add(new SuggestedGppCriterion("gpp-doc-1", "", "award criteria", "comprehensive",
+                "AC1", "Award Criterion 1", List.of("30000000"), List.of("30000000"), "LOT-0001"));
+        suggestedCriteria.add(new SuggestedGppCriterion(null, "", "award criteria", "core", "AC1",
+                "Award Criterion 1", List.of("30000000"), List.of("30000000"), "LOT-0001"));
+
+        List<SuggestedGppPatch> suggestedPatches = suggester.suggestGppPatches(notice, suggestedCriteria);
+
+        assertPatchExists(suggestedPatches, "award criteria --- AC1: Award Criterion 1");
+        assertPatchExists(suggestedPatches, "Green Public Procurement Criteria - eu");
+        assertFalse(suggestedPatches.stream()
+                .anyMatch(patch -> patch.getName().equals("award criteria --- ac1: Award Criterion 1 bis")));
+        assertFalse(suggestedPatches.stream()
+                .anyMatch(patch -> patch.getName().equals("Green Public Procurement Criteria - national")));
+    }
+
+    @Test
+    public void testSuggestGppPatches_sharedParentPatches() throws IOException {
+        List<GppCriterion> gppCriteria = new ArrayList<>();
+        gppCriteria.add(new GppCriterion(
+                "gpp-doc-1", "eu", "", "award criteria", "core", "AC1", "Award Criterion 1",
+                List.of("30000000"), "env-imp-type-1", "description for AC1", null));
+        gppCriteria.add(new GppCriterion(
+                "gpp-doc-1", "eu", "", "award criteria", "core", "AC2", "Award Criterion 2",
+                List.of("30000000"), "env-imp-type-1", "description for AC2", null));
+
+        GppPatchesLoader patchesLoader = new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json");
+        GppPatchSuggester suggester = new GppPatchSuggester(gppCriteria, patchesLoader.loadGppPatches());
+        Notice notice = new Notice(XmlUtils.getAsXmlString("test_notices/test_notice_minimal.xml"));
+
+        List<SuggestedGppCriterion> suggestedCriteria = new ArrayList<>();
+        for (GppCriterion crit : gppCriteria) {
+            suggestedCriteria.add(new SuggestedGppCriterion(crit.getGppDocument(), crit.getCategory(),
+                    crit.getCriterionType(), crit.getAmbitionLevel(), crit.getId(), crit.getName(),
+                    crit.getRelevantCpvCodes(), crit.getRelevantCpvCodes(), "LOT-0001"));
+        }
+
+        List<String> names = suggester.suggestGppPatches(notice, suggestedCriteria).stream()
+                .map(SuggestedGppPatch::getName).toList();
+
+        // the parents are suggested once, outermost first, before the first criterion
+        int awardingTerms = names.indexOf("Awarding Terms");
+        int awardCriteria = names.indexOf("Award Criteria");
+        int first = names.indexOf("award criteria --- AC1: Award Criterion 1");
+        int second = names.indexOf("award criteria --- AC2: Award Criterion 2");
+        assertTrue(awardingTerms >= 0 && awardingTerms < awardCriteria);
+        assertTrue(awardCriteria < first && first < second);
+        assertEquals(awardingTerms, names.lastIndexOf("Awarding Terms"));
+        assertEquals(awardCriteria, names.lastIndexOf("Award Criteria"));
+    }
+
+    @Test
+    public void testSuggestGppPatches_renderCache() throws IOException {
+        List<GppCriterion> gppCriteria = new ArrayList<>();
+        gppCriteria.add(new GppCriterion(
+                "gpp-doc-1", "eu", "", "award criteria", "core", "AC1", "Award Criterion 1",
+                List.of("30000000"), "env-imp-type-1", "description for AC1", null));
+        gppCriteria.add(new GppCriterion(
+                "gpp-doc-1", "eu", "", "selection criteria", "core", "SC1", "Selection Criterion 1",
+                List.of("30000000"), "env-imp-type-1", "description for SC1", null));
+
+        GppPatchGraph graph = new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json")
+                .loadGppPatchGraph();
+        GppPatchSuggester cached = new GppPatchSuggester(gppCriteria, graph);
+        GppPatchSuggester uncached = new GppPatchSuggester(gppCriteria, graph, 0);
+        Notice notice = new Notice(XmlUtils.getAsXmlString("test_notices/test_notice_minimal.xml"));
+
+        List<SuggestedGppCriterion> suggestedCriteria = new ArrayList<>();
+        for (GppCriterion crit : gppCriteria) {
+            suggestedCriteria.add(new SuggestedGppCriterion(crit.getGppDocument(), crit.getCategory(),
+                    crit.getCriterionType(), crit.getAmbitionLevel(), crit.getId(), crit.getName(),
+                    crit.getRelevantCpvCodes(), crit.getRelevantCpvCodes(), "LOT-0001"));
+        }
+
+        List<SuggestedGppPatch> expected = uncached.suggestGppPatches(notice, suggestedCriteria);
+        List<SuggestedGppPatch> first = cached.suggestGppPatches(notice, suggestedCriteria);
+        List<SuggestedGppPatch> second = cached.suggestGppPatches(notice.copy(), suggestedCriteria);
+
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertEquals(expected.stream().map(SuggestedGppPatch::getDescription).toList(),
+                second.stream().map(SuggestedGppPatch::getDescription).toList());
+        assertEquals(2, cached.getRenderCacheStats().getMissCount());
+        assertEquals(2, cached.getRenderCacheStats().getHitCount());
+        assertEquals(0, uncached.getRenderCacheStats().getRequestCount());
+
+        // the rendered values are shared, so they are parsed at most once
+        String name = "award criteria --- AC1: Award Criterion 1";
+        SuggestedGppPatch firstPatch = first.stream().filter(p -> p.getName().equals(name)).findFirst().get();
+        SuggestedGppPatch secondPatch = second.stream().filter(p -> p.getName().equals(name)).findFirst().get();
+        assertSame(firstPatch.getValueFragment(), secondPatch.getValueFragment());
+    }
+
     private void assertPatchExists(List<SuggestedGppPatch> suggestedPatches, String patchName) {
         assertTrue(suggestedPatches.stream().anyMatch(patch -> patch.getName().equals(patchName)));
     }
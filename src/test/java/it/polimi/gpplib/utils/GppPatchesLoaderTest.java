@@ -32,4 +32,15 @@ public class GppPatchesLoaderTest {
         assertEquals("path2", patch2.getPathInLot());
         assertEquals("<xml>value2</xml>", patch2.getValue());
     }
+
+    @Test
+    public void testLoadGppPatchGraph_withTestFile() throws Exception {
+        GppPatchesLoader loader = new GppPatchesLoader("domain_knowledge/test_gpp_patches_data.json");
+        GppPatchGraph graph = loader.loadGppPatchGraph();
+
+        assertEquals(2, graph.getPatches().size());
+        GppPatch patch1 = graph.findByName("patch1");
+        assertEquals("Patch1", patch1.getName());
+        assertEquals(List.of(patch1), graph.getAncestors("Patch2"));
+    }
 }
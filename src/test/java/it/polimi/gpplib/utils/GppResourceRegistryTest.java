@@ -0,0 +1,122 @@
+package it.polimi.gpplib.utils;
+
+import org.junit.Test;
+
+import it.polimi.gpplib.model.Constants;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class GppResourceRegistryTest {
+
+    private static final String DOCS_PATH = "domain_knowledge/test_gpp_criteria_docs.json";
+    private static final String CRITERIA_PATH = "domain_knowledge/test_gpp_criteria.json";
+    private static final String PATCHES_PATH = "domain_knowledge/test_gpp_patches_data.json";
+
+    @Test
+    public void testAcquireDomainKnowledge_sharedInstance() {
+        GppResourceRegistry registry = new GppResourceRegistry();
+        try (GppResourceRegistry.Lease<GppDomainKnowledgeService> first = registry.acquireDomainKnowledge(null,
+                DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 16);
+                GppResourceRegistry.Lease<GppDomainKnowledgeService> second = registry.acquireDomainKnowledge(null,
+                        DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 16)) {
+            assertSame(first.get(), second.get());
+            assertEquals(1, registry.size());
+        }
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testAcquireDomainKnowledge_differentKeys() {
+        GppResourceRegistry registry = new GppResourceRegistry();
+        try (GppResourceRegistry.Lease<GppDomainKnowledgeService> first = registry.acquireDomainKnowledge(null,
+                DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 16);
+                GppResourceRegistry.Lease<GppDomainKnowledgeService> second = registry.acquireDomainKnowledge(null,
+                        DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 0)) {
+            assertNotSame(first.get(), second.get());
+            assertEquals(2, registry.size());
+        }
+    }
+
+    @Test
+    public void testRelease_lastLeaseDropsResource() {
+        GppResourceRegistry registry = new GppResourceRegistry();
+        GppResourceRegistry.Lease<GppDomainKnowledgeService> first = registry.acquireDomainKnowledge(null,
+                DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 16);
+        GppResourceRegistry.Lease<GppDomainKnowledgeService> second = registry.acquireDomainKnowledge(null,
+                DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 16);
+        GppDomainKnowledgeService shared = first.get();
+
+        first.close();
+        // closing twice does not release the other lease's reference
+        first.close();
+        assertEquals(1, registry.size());
+
+        second.close();
+        assertEquals(0, registry.size());
+
+        try (GppResourceRegistry.Lease<GppDomainKnowledgeService> third = registry.acquireDomainKnowledge(null,
+                DOCS_PATH, CRITERIA_PATH, PATCHES_PATH, 16)) {
+            assertNotSame(shared, third.get());
+        }
+    }
+
+    @Test
+    public void testAcquireDomainKnowledge_failureIsNotCached() {
+        GppResourceRegistry registry = new GppResourceRegistry();
+        for (int i = 0; i < 2; i++) {
+            try {
+                registry.acquireDomainKnowledge(null, "invalid_path/test_gpp_criteria_docs.json", CRITERIA_PATH,
+                        PATCHES_PATH, 16);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                assertEquals("Invalid GPP documents file path: invalid_path/test_gpp_criteria_docs.json",
+                        ex.getMessage());
+            }
+            assertEquals(0, registry.size());
+        }
+    }
+
+    @Test
+    public void testAcquireEFormsSdk_concurrentLoadsOnce() throws Exception {
+        GppResourceRegistry registry = new GppResourceRegistry();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<GppResourceRegistry.Lease<EFormsSdkWrapper>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                Callable<GppResourceRegistry.Lease<EFormsSdkWrapper>> task = () -> {
+                    start.await();
+                    return registry.acquireEFormsSdk(Constants.EFORMS_SDK_DEFAULT_VERSION);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            List<GppResourceRegistry.Lease<EFormsSdkWrapper>> leases = new ArrayList<>();
+            for (Future<GppResourceRegistry.Lease<EFormsSdkWrapper>> future : futures) {
+                leases.add(future.get());
+            }
+            EFormsSdkWrapper shared = leases.get(0).get();
+            for (GppResourceRegistry.Lease<EFormsSdkWrapper> lease : leases) {
+                assertSame(shared, lease.get());
+            }
+            assertEquals(1, registry.size());
+
+            for (GppResourceRegistry.Lease<EFormsSdkWrapper> lease : leases) {
+                lease.close();
+            }
+            assertEquals(0, registry.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
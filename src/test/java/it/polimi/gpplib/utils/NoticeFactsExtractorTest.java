@@ -0,0 +1,96 @@
+package it.polimi.gpplib.utils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.polimi.gpplib.model.Notice;
+import it.polimi.gpplib.model.NoticeFacts;
+
+import static org.junit.Assert.*;
+
+public class NoticeFactsExtractorTest {
+
+    private static final List<String> NOTICES = List.of(
+            "test_notices/test_notice.xml",
+            "test_notices/test_notice_minimal.xml",
+            "test_notices/german_furniture.xml",
+            "test_notices/french_furniture.xml",
+            "test_notices/polish_furniture.xml",
+            "notices_furniture/00151946_2025.xml",
+            "notices_furniture/00152724_2025.xml",
+            "notices_furniture/00154896_2025.xml",
+            "notices_furniture/00155175_2025.xml",
+            "notices_furniture/00175200_2025.xml",
+            "notices_furniture/00185800_2025.xml");
+
+    private static final String HEADER = "<ContractNotice"
+            + " xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:ContractNotice-2\""
+            + " xmlns:cac=\"urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2\""
+            + " xmlns:cbc=\"urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2\">";
+
+    @Test
+    public void testExtract_matchesDomNotice() {
+        for (String resource : NOTICES) {
+            String xml = XmlUtils.getAsXmlString(resource);
+            NoticeFacts expected = NoticeFacts.fromNotice(new Notice(xml));
+            NoticeFacts actual = NoticeFactsExtractor.extract(xml.getBytes(StandardCharsets.UTF_8));
+            assertEquals(resource, expected, actual);
+        }
+    }
+
+    @Test
+    public void testExtract_fromPath() throws Exception {
+        String xml = XmlUtils.getAsXmlString("test_notices/test_notice.xml");
+        Path file = Files.createTempFile("notice", ".xml");
+        try {
+            Files.writeString(file, xml);
+            assertEquals(NoticeFacts.fromNotice(new Notice(xml)), NoticeFactsExtractor.extract(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testExtract_onlyLotsWithLotIdsAndNestedLookalikesIgnored() {
+        String xml = HEADER
+                + "<cbc:NoticeLanguageCode> ITA </cbc:NoticeLanguageCode>"
+                + "<cac:ProcurementProject>"
+                + "<cac:MainCommodityClassification><cbc:ItemClassificationCode>39000000</cbc:ItemClassificationCode>"
+                + "</cac:MainCommodityClassification>"
+                + "<cac:Other><cac:MainCommodityClassification>11111111</cac:MainCommodityClassification></cac:Other>"
+                + "</cac:ProcurementProject>"
+                + "<cac:ProcurementProjectLot><cbc:ID schemeName=\"Part\">PAR-0001</cbc:ID>"
+                + "<cac:ProcurementProject><cac:MainCommodityClassification>22222222</cac:MainCommodityClassification>"
+                + "</cac:ProcurementProject></cac:ProcurementProjectLot>"
+                + "<cac:ProcurementProjectLot><cbc:ID schemeName=\"Lot\">LOT-0001</cbc:ID>"
+                + "<cac:ProcurementProject><cac:MainCommodityClassification>39100000</cac:MainCommodityClassification>"
+                + "<cac:AdditionalCommodityClassification>39110000</cac:AdditionalCommodityClassification>"
+                + "</cac:ProcurementProject></cac:ProcurementProjectLot>"
+                + "</ContractNotice>";
+
+        NoticeFacts facts = NoticeFactsExtractor.extract(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("ITA", facts.getNoticeLanguage());
+        assertNull(facts.getEFormsSdkVersion());
+        assertEquals(List.of("39000000"), facts.getAllProcurementProjectCpvs());
+        assertEquals(List.of("LOT-0001"), facts.getLotIds());
+        assertEquals(List.of("39100000", "39110000"), facts.getAllLotCpvs("LOT-0001"));
+        assertTrue(facts.getAllLotCpvs("PAR-0001").isEmpty());
+        assertEquals(NoticeFacts.fromNotice(new Notice(xml)), facts);
+    }
+
+    @Test(expected = XmlUtils.XmlUtilsException.class)
+    public void testExtract_invalidXml() {
+        NoticeFactsExtractor.extract("<root><unclosed></root>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = XmlUtils.XmlUtilsException.class)
+    public void testExtract_missingFile() {
+        NoticeFactsExtractor.extract(Path.of("does_not_exist", "notice.xml"));
+    }
+}
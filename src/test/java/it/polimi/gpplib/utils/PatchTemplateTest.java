@@ -0,0 +1,70 @@
+package it.polimi.gpplib.utils;
+
+import org.apache.commons.text.StringSubstitutor;
+import org.junit.Test;
+
+import it.polimi.gpplib.model.Constants;
+import it.polimi.gpplib.model.GppPatch;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PatchTemplateTest {
+
+    @Test
+    public void testRender_placeholders() {
+        PatchTemplate template = PatchTemplate.compile(
+                "<cbc:Name xmlns:cbc=\"{cbc}\" languageID=\"{language}\">{arg0} - {arg1}</cbc:Name>");
+        assertEquals("<cbc:Name xmlns:cbc=\"" + Constants.NAMESPACE_MAP.get("cbc")
+                + "\" languageID=\"ITA\">first - second</cbc:Name>", template.render("ITA", "first", "second"));
+    }
+
+    @Test
+    public void testRender_missingValuesKeepPlaceholder() {
+        PatchTemplate template = PatchTemplate.compile("{language}:{arg0}:{arg1}:{arg12}");
+        assertEquals("{language}:a:{arg1}:{arg12}", template.render(null, "a", null));
+    }
+
+    @Test
+    public void testRender_unknownPlaceholdersAndBraces() {
+        PatchTemplate template = PatchTemplate.compile("{unknown} {arg} {argx} { {cac} } {");
+        assertEquals("{unknown} {arg} {argx} { " + Constants.NAMESPACE_MAP.get("cac") + " } {",
+                template.render("EN"));
+    }
+
+    @Test
+    public void testRender_valuesAreNotSubstituted() {
+        PatchTemplate template = PatchTemplate.compile("{arg0}");
+        assertEquals("{arg1} {cac}", template.render("EN", "{arg1} {cac}", "x"));
+    }
+
+    @Test
+    public void testRender_empty() {
+        assertEquals("", PatchTemplate.compile("").render("EN"));
+        assertEquals("no placeholders", PatchTemplate.compile("no placeholders").render("EN", "x"));
+    }
+
+    @Test
+    public void testRender_sameAsSubstitutionOnRealPatches() throws Exception {
+        List<GppPatch> patches = new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json")
+                .loadGppPatches();
+        String[] args = { "value0", "value1", "value2", "value3", "value4", "value5" };
+
+        Map<String, String> variables = new HashMap<>(Constants.NAMESPACE_MAP);
+        variables.put(Constants.TAG_LANGUAGE, "ITA");
+        for (int i = 0; i < args.length; i++) {
+            variables.put("arg" + i, args[i]);
+        }
+        StringSubstitutor substitutor = new StringSubstitutor(variables, "{", "}");
+
+        for (GppPatch patch : patches) {
+            if (patch.getValue() != null) {
+                assertEquals(patch.getName(), substitutor.replace(patch.getValue()),
+                        patch.getTemplate().render("ITA", args));
+            }
+        }
+    }
+}
@@ -53,4 +53,29 @@ public class UtilsTest {
         assertFalse(Utils.hasMatchingCpvs(noticeCpvs, criteriaCpvs));
     }
 
+    @Test
+    public void testTrimTrailingZeros() {
+        assertEquals("391", Utils.trimTrailingZeros("39100000"));
+        assertEquals("45233293", Utils.trimTrailingZeros("45233293"));
+        assertEquals("", Utils.trimTrailingZeros("00000000"));
+        assertEquals("", Utils.trimTrailingZeros(""));
+    }
+
+    @Test
+    public void testCpvPrefixes() {
+        assertEquals(List.of("391", "45233293", ""), Utils.cpvPrefixes(List.of("39100000", "45233293", "00000000")));
+        assertEquals(List.of(), Utils.cpvPrefixes(null));
+    }
+
+    @Test
+    public void testMatchingCpvs_withPrefixes() {
+        List<String> noticeCpvs = List.of("12340000", "39144444", "45233293", "00000000");
+        List<String> criteriaCpvs = List.of("39100000", "45233293", "00000000");
+        List<String> prefixes = Utils.cpvPrefixes(criteriaCpvs);
+        assertEquals(List.of("39144444", "45233293", "00000000"),
+                Utils.matchingCpvs(noticeCpvs, criteriaCpvs, prefixes));
+        assertTrue(Utils.hasMatchingCpvs(List.of("39100001"), criteriaCpvs, prefixes));
+        assertFalse(Utils.hasMatchingCpvs(List.of("00000001"), criteriaCpvs, prefixes));
+    }
+
 }
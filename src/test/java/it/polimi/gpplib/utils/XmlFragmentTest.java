@@ -0,0 +1,113 @@
+package it.polimi.gpplib.utils;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import it.polimi.gpplib.model.GppPatch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class XmlFragmentTest {
+
+    @Test
+    public void testImportInto_copyOwnedByTarget() {
+        XmlFragment fragment = new XmlFragment("<value><child>potato</child></value>");
+        Document first = XmlUtils.loadDocument("<root/>");
+        Document second = XmlUtils.loadDocument("<root/>");
+
+        Node a = fragment.importInto(first);
+        Node b = fragment.importInto(second);
+        Node c = fragment.importInto(first);
+
+        assertSame(first, a.getOwnerDocument());
+        assertSame(second, b.getOwnerDocument());
+        assertNotSame(a, c);
+        assertNull(a.getParentNode());
+        assertEquals("potato", a.getTextContent());
+
+        // modifying a copy does not affect the fragment
+        a.getFirstChild().setTextContent("tomato");
+        assertEquals("potato", fragment.importInto(second).getTextContent());
+        assertEquals("<value><child>potato</child></value>", fragment.getXml());
+    }
+
+    @Test
+    public void testImportInto_invalidXml() {
+        XmlFragment fragment = new XmlFragment("<hola....");
+        try {
+            fragment.importInto(XmlUtils.loadDocument("<root/>"));
+            fail("Expected XmlUtilsException");
+        } catch (XmlUtils.XmlUtilsException ex) {
+            // expected
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_nullXml() {
+        new XmlFragment(null);
+    }
+
+    @Test
+    public void testImportInto_sameAsImportNode() throws Exception {
+        List<GppPatch> patches = new GppPatchesLoader("domain_knowledge/real_gpp_patches_data.json")
+                .loadGppPatches();
+        List<String> values = new ArrayList<>();
+        values.add("<a xmlns=\"urn:a\" xmlns:b=\"urn:b\" b:x=\"1\" y=\"2\"><!--c--><?pi d?>t<![CDATA[<e>]]>"
+                + "<b:f/></a>");
+        for (GppPatch patch : patches) {
+            if (patch.getValue() != null) {
+                values.add(patch.getTemplate().render("ITA", "v0", "v1", "v2", "v3", "v4", "v5"));
+            }
+        }
+
+        for (String value : values) {
+            Document expected = XmlUtils.loadDocument("<root/>");
+            expected.getDocumentElement().appendChild(
+                    expected.importNode(XmlUtils.loadDocument(value).getDocumentElement(), true));
+            Document actual = XmlUtils.loadDocument("<root/>");
+            actual.getDocumentElement().appendChild(new XmlFragment(value).importInto(actual));
+
+            assertEquals(value, XmlUtils.docToString(expected), XmlUtils.docToString(actual));
+        }
+    }
+
+    @Test
+    public void testImportInto_concurrent() throws Exception {
+        XmlFragment fragment = new XmlFragment("<value><child a=\"1\">potato</child><child/></value>");
+        String expected = null;
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<String> task = () -> {
+                    String last = null;
+                    for (int j = 0; j < 200; j++) {
+                        Document document = XmlUtils.loadDocument("<root/>");
+                        document.getDocumentElement().appendChild(fragment.importInto(document));
+                        last = XmlUtils.docToString(document);
+                    }
+                    return last;
+                };
+                futures.add(executor.submit(task));
+            }
+            for (Future<String> future : futures) {
+                if (expected == null) {
+                    expected = future.get();
+                }
+                assertEquals(expected, future.get());
+            }
+            assertTrue(expected, expected.contains("<child a=\"1\">potato</child>"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
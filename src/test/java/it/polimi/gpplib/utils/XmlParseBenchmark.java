@@ -0,0 +1,86 @@
+package it.polimi.gpplib.utils;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Compares notice parse throughput on the {@code notices_furniture} corpus
+ * between a new DocumentBuilder per parse (the former behaviour of
+ * {@link XmlUtils#loadDocument(String)}) and the pooled, hardened builders it
+ * uses now.
+ *
+ * <p>
+ * Not a unit test, run it with {@code mvn -Pbenchmark test-compile exec:java}.
+ * Optional arguments: number of measured rounds (default 200) and warm-up
+ * rounds (default 50) over the whole corpus.
+ */
+public class XmlParseBenchmark {
+
+    private static final List<String> CORPUS = List.of(
+            "notices_furniture/00151946_2025.xml",
+            "notices_furniture/00152724_2025.xml",
+            "notices_furniture/00154896_2025.xml",
+            "notices_furniture/00155175_2025.xml",
+            "notices_furniture/00175200_2025.xml",
+            "notices_furniture/00185800_2025.xml");
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int warmUpRounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        List<String> notices = new ArrayList<>();
+        long corpusChars = 0;
+        for (String resource : CORPUS) {
+            String xml = XmlUtils.getAsXmlString(resource);
+            notices.add(xml);
+            corpusChars += xml.length();
+        }
+        System.out.printf(Locale.ROOT, "Corpus: %d notices, %d KB%n", notices.size(), corpusChars / 1024);
+
+        DocumentBuilderFactory unpooledFactory = DocumentBuilderFactory.newInstance();
+        unpooledFactory.setNamespaceAware(true);
+        Parser unpooled = xml -> unpooledFactory.newDocumentBuilder()
+                .parse(new InputSource(new StringReader(xml)));
+        Parser pooled = XmlUtils::loadDocument;
+
+        run("new builder per parse", unpooled, notices, warmUpRounds, rounds, corpusChars);
+        run("pooled builder", pooled, notices, warmUpRounds, rounds, corpusChars);
+    }
+
+    private static void run(String label, Parser parser, List<String> notices, int warmUpRounds, int rounds,
+            long corpusChars) throws Exception {
+        int checksum = 0;
+        for (int i = 0; i < warmUpRounds; i++) {
+            checksum += parseAll(parser, notices);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            checksum += parseAll(parser, notices);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long parses = (long) rounds * notices.size();
+        System.out.printf(Locale.ROOT, "%-24s %8.1f notices/s %8.2f MB/s %8.1f us/notice (checksum %d)%n",
+                label, parses / seconds, rounds * corpusChars / seconds / (1024 * 1024),
+                seconds * 1e6 / parses, checksum);
+    }
+
+    private static int parseAll(Parser parser, List<String> notices) throws Exception {
+        int checksum = 0;
+        for (String xml : notices) {
+            checksum += parser.parse(xml).getDocumentElement().getChildNodes().getLength();
+        }
+        return checksum;
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        Document parse(String xml) throws Exception;
+    }
+}
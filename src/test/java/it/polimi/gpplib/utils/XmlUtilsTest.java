@@ -1,5 +1,8 @@
 package it.polimi.gpplib.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -131,6 +134,17 @@ public class XmlUtilsTest {
         assertTrue("Node A should have B as a child after insertion", hasB);
     }
 
+    @Test
+    public void testInsertIntoNode_sameDocumentIsCopied() {
+        Document doc = XmlUtils.loadDocument("<A><B/><C/></A>");
+        Node nodeA = doc.getDocumentElement();
+        Node nodeB = nodeA.getFirstChild();
+        XmlUtils.insertIntoNode(nodeA, nodeB);
+        XmlUtils.insertIntoNodeBefore(nodeA, nodeB, java.util.List.of("C"));
+        assertSame(nodeB, nodeA.getFirstChild());
+        assertEquals(4, nodeA.getChildNodes().getLength());
+    }
+
     @Test(expected = XmlUtils.XmlUtilsException.class)
     public void testInsertIntoNode_nullParentOrChild() {
         XmlUtils.insertIntoNode(null, null);
@@ -285,6 +299,34 @@ public class XmlUtilsTest {
         assertEquals("Should have 2 item nodes remaining", 2, remainingItems.getLength());
     }
 
+    @Test
+    public void testFindNextInOrder() {
+        java.util.Map<String, Integer> ordinals = java.util.Map.of("{}a", 0, "{}b", 1, "{}c", 2, "{}d", 3,
+                "{}e", 4);
+        Document doc = XmlUtils.loadDocument("<root><a>A</a><x>X</x><d>D</d><e>E</e></root>");
+        Node root = doc.getDocumentElement();
+
+        for (String[] childAndExpected : new String[][] { { "c", "D" }, { "e", null }, { "y", null },
+                { "a", "D" } }) {
+            Node next = XmlUtils.findNextInOrder(root, doc.createElement(childAndExpected[0]), ordinals);
+            assertEquals(childAndExpected[0], childAndExpected[1], next != null ? next.getTextContent() : null);
+        }
+    }
+
+    @Test
+    public void testGetExpandedName() {
+        String cac = Constants.NAMESPACE_MAP.get("cac");
+        Document doc = XmlUtils.loadDocument("<x:A xmlns:x=\"" + cac + "\"><B xmlns=\"" + cac + "\"/><C/></x:A>");
+        Node a = doc.getDocumentElement();
+        assertEquals("{" + cac + "}A", XmlUtils.getExpandedName(a));
+        assertEquals("{" + cac + "}B", XmlUtils.getExpandedName(a.getFirstChild()));
+        assertEquals("{}C", XmlUtils.getExpandedName(a.getLastChild()));
+
+        assertEquals("{" + cac + "}A", XmlUtils.getExpandedName("cac:A"));
+        assertEquals("{}C", XmlUtils.getExpandedName("C"));
+        assertEquals("unknown:D", XmlUtils.getExpandedName("unknown:D"));
+    }
+
     @Test
     public void testInsertIntoNodeBefore_withExistingReferenceNode() {
         // Create a test document with ordered elements
@@ -506,4 +548,83 @@ public class XmlUtilsTest {
         assertEquals("Third element should be 'c'", "c", actualOrder.get(2));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testXPathCache_repeatedPathIsHit() {
+        Document doc = XmlUtils.loadDocument("<root><a>A</a></root>");
+        String path = "a[. = 'A']";
+        XmlUtils.getNodeAtPath(doc.getDocumentElement(), path);
+        CacheStats before = XmlUtils.getXPathCacheStats();
+        XmlUtils.getNodeAtPath(doc.getDocumentElement(), path);
+        XmlUtils.getNodesAtPath(doc.getDocumentElement(), path);
+        CacheStats after = XmlUtils.getXPathCacheStats();
+        assertEquals(2, after.getHitCount() - before.getHitCount());
+        assertEquals(0, after.getMissCount() - before.getMissCount());
+    }
+
+    @Test
+    public void testXPathCache_constantPathsAreWarm() throws InterruptedException {
+        String xml = XmlUtils.getAsXmlString("test_notices/test_notice.xml");
+        Document doc = XmlUtils.loadDocument(xml);
+        long[] missDelta = new long[1];
+        // a fresh thread gets its own cache, which must already contain the fixed paths
+        Thread thread = new Thread(() -> {
+            CacheStats before = XmlUtils.getXPathCacheStats();
+            XmlUtils.getNodesAtPath(doc.getDocumentElement(), Constants.PATH_STRATEGIC_PROCUREMENT_NONE);
+            missDelta[0] = XmlUtils.getXPathCacheStats().getMissCount() - before.getMissCount();
+        });
+        thread.start();
+        thread.join();
+        assertEquals(0, missDelta[0]);
+    }
+
+    @Test
+    public void testLoadDocument_builderIsReusedAfterFailure() {
+        try {
+            XmlUtils.loadDocument("<root><unclosed></root>");
+            fail("Expected XmlUtilsException");
+        } catch (XmlUtils.XmlUtilsException e) {
+            // expected
+        }
+        Document first = XmlUtils.loadDocument("<root><a>A</a></root>");
+        Document second = XmlUtils.loadDocument("<other/>");
+        assertNotSame(first, second);
+        assertEquals("root", first.getDocumentElement().getNodeName());
+        assertEquals("A", first.getDocumentElement().getTextContent());
+        assertEquals("other", second.getDocumentElement().getNodeName());
+    }
+
+    @Test
+    public void testLoadDocument_externalDtdIsNotLoaded() {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE root SYSTEM \"http://unreachable.invalid/root.dtd\">"
+                + "<root><a>A</a></root>";
+        Document doc = XmlUtils.loadDocument(xml);
+        assertEquals("A", doc.getDocumentElement().getTextContent());
+    }
+
+    @Test
+    public void testLoadDocument_externalEntitiesAreNotResolved() {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE root [<!ENTITY ext SYSTEM \"file:///etc/hostname\">]>"
+                + "<root><a>&ext;</a></root>";
+        Document doc = XmlUtils.loadDocument(xml);
+        assertEquals("", doc.getDocumentElement().getTextContent().trim());
+    }
+
+    @Test
+    public void testLoadDocument_bytesUseDeclaredEncoding() {
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><root>caf\u00e9</root>";
+        Document doc = XmlUtils.loadDocument(xml.getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals("caf\u00e9", doc.getDocumentElement().getTextContent());
+
+        String utf16 = "<?xml version=\"1.0\" encoding=\"UTF-16\"?><root>\u20ac</root>";
+        doc = XmlUtils.loadDocument(ByteBuffer.wrap(utf16.getBytes(StandardCharsets.UTF_16)));
+        assertEquals("\u20ac", doc.getDocumentElement().getTextContent());
+    }
+
+    @Test(expected = XmlUtils.XmlUtilsException.class)
+    public void testLoadDocument_nullStream() {
+        XmlUtils.loadDocument((java.io.InputStream) null);
+    }
+
+}